@@ -121,6 +121,78 @@ public class AvrMoteMemory implements MemoryInterface {
     }
   }
 
+  /* Reads little-endian value directly from data memory */
+  private long readValue(long address, int size) throws MoteMemoryException {
+    if (!accessInRange(address, size)) {
+      throw new MoteMemoryException(
+              "Getting memory segment [0x%x,0x%x] failed: Out of range",
+              address, address + size - 1);
+    }
+    /* XXX See comment in getMemorySegment. */
+    coojaIsAccessingMemory = true;
+    long value = 0;
+    for (int i = size - 1; i >= 0; i--) {
+      value = (value << 8) | (interpreter.getDataByte((int) address + i) & 0xff);
+    }
+    coojaIsAccessingMemory = false;
+    return value;
+  }
+
+  /* Writes little-endian value directly to data memory */
+  private void writeValue(long address, int size, long value) throws MoteMemoryException {
+    if (!accessInRange(address, size)) {
+      throw new MoteMemoryException(
+              "Writing memory segment [0x%x,0x%x] failed: Out of range",
+              address, address + size - 1);
+    }
+    /* XXX See comment in getMemorySegment. */
+    coojaIsAccessingMemory = true;
+    for (int i = 0; i < size; i++) {
+      interpreter.writeDataByte((int) address + i, (byte) (value >> (8 * i)));
+    }
+    coojaIsAccessingMemory = false;
+  }
+
+  @Override
+  public byte getInt8(long address) throws MoteMemoryException {
+    return (byte) readValue(address, 1);
+  }
+
+  @Override
+  public short getInt16(long address) throws MoteMemoryException {
+    return (short) readValue(address, 2);
+  }
+
+  @Override
+  public int getInt32(long address) throws MoteMemoryException {
+    return (int) readValue(address, 4);
+  }
+
+  @Override
+  public long getInt64(long address) throws MoteMemoryException {
+    return readValue(address, 8);
+  }
+
+  @Override
+  public void setInt8(long address, byte value) throws MoteMemoryException {
+    writeValue(address, 1, value);
+  }
+
+  @Override
+  public void setInt16(long address, short value) throws MoteMemoryException {
+    writeValue(address, 2, value);
+  }
+
+  @Override
+  public void setInt32(long address, int value) throws MoteMemoryException {
+    writeValue(address, 4, value);
+  }
+
+  @Override
+  public void setInt64(long address, long value) throws MoteMemoryException {
+    writeValue(address, 8, value);
+  }
+
   @Override
   public void clearMemory() {
     setMemorySegment(0L, new byte[avrProperties.sram_size]);
@@ -32,7 +32,11 @@ package org.contikios.cooja.avrmote;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -47,13 +51,18 @@ import org.contikios.cooja.motes.AbstractEmulatedMote;
 
 import avrora.arch.avr.AVRProperties;
 import avrora.core.LoadableProgram;
+import avrora.core.SourceMapping;
+import avrora.core.SourceMapping.Location;
 import avrora.sim.AtmelInterpreter;
+import avrora.sim.FiniteStateMachine;
 import avrora.sim.Simulator;
 import avrora.sim.State;
+import avrora.sim.clock.MainClock;
 import avrora.sim.mcu.AtmelMicrocontroller;
 import avrora.sim.mcu.EEPROM;
 import avrora.sim.platform.MicaZ;
 import avrora.sim.platform.PlatformFactory;
+import avrora.sim.radio.CC2420Radio;
 
 import org.contikios.cooja.avrmote.interfaces.MicaClock;
 
@@ -66,6 +75,13 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
   /* 8 MHz according to Contiki config */
   public static long NR_CYCLES_PER_MSEC = 8000;
 
+  /* Maximum number of sleeping milliseconds skipped by a single wakeup */
+  private static final long MAX_SKIPPED_MSEC = 1000;
+
+  /* CC2420 states as numbered by Avrora's CC2420Radio: 0 power off,
+   * 1 power down, 2 idle, 3 receive, and 4 and up transmit */
+  private static final int CC2420_STATE_IDLE = 2;
+
   private MoteInterfaceHandler myMoteInterfaceHandler;
   private AtmelMicrocontroller myCpu = null;
   private MicaZ micaZ = null;
@@ -76,6 +92,10 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
   private MicaZMoteType myMoteType = null;
 
   private EEPROM eeprom = null;
+  private CC2420Radio radio = null;
+
+  /* MCU sleep state, tracked by a probe on the MCU state machine */
+  private boolean mcuSleeping = false;
   
   private long executed = 0;
   private long skipped = 0;
@@ -150,6 +170,15 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
     avrProperties = (AVRProperties) myCpu.getProperties();
     Simulator sim = myCpu.getSimulator();
     interpreter = (AtmelInterpreter) sim.getInterpreter();
+    radio = (CC2420Radio) micaZ.getDevice("radio");
+    mcuSleeping = false;
+    myCpu.getFSM().insertProbe(new FiniteStateMachine.Probe() {
+      public void fireBeforeTransition(int beforeState, int afterState) {
+        mcuSleeping = afterState != AtmelMicrocontroller.MODE_ACTIVE;
+      }
+      public void fireAfterTransition(int beforeState, int afterState) {
+      }
+    });
 //     State state = interpreter.getState();
     myMemory = new AvrMoteMemory(program.getProgram().getSourceMapping(), avrProperties, interpreter);
   }
@@ -167,6 +196,56 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
     return getInterfaces().getMoteID().getMoteID();
   }
 
+  public int getCPUFrequency() {
+    return (int) (NR_CYCLES_PER_MSEC * 1000);
+  }
+
+  /* Function start addresses and names, sorted by address. Built on demand. */
+  private int[] functionAddresses = null;
+  private String[] functionNames = null;
+
+  private void createFunctionTable() {
+    ArrayList<Location> functions = new ArrayList<Location>();
+    SourceMapping mapping = program.getProgram().getSourceMapping();
+    for (Iterator<?> iter = mapping.getIterator(); iter.hasNext();) {
+      Location loc = (Location) iter.next();
+      if (loc != null && loc.section.equals(".text")) {
+        functions.add(loc);
+      }
+    }
+    Collections.sort(functions, new Comparator<Location>() {
+      public int compare(Location o1, Location o2) {
+        return Integer.compare(o1.vma_addr, o2.vma_addr);
+      }
+    });
+
+    functionAddresses = new int[functions.size()];
+    functionNames = new String[functions.size()];
+    for (int i = 0; i < functions.size(); i++) {
+      functionAddresses[i] = functions.get(i).vma_addr;
+      functionNames[i] = functions.get(i).name;
+    }
+  }
+
+  /**
+   * Avrora does not track calls: only the function containing the PC,
+   * i.e. the closest preceding symbol in .text, is returned.
+   */
+  public String[] getCallStackFunctions() {
+    if (functionAddresses == null) {
+      createFunctionTable();
+    }
+    int pc = interpreter.getState().getPC();
+    int index = Arrays.binarySearch(functionAddresses, pc);
+    if (index < 0) {
+      index = -index - 2; /* Preceding symbol */
+    }
+    if (index < 0) {
+      return new String[] { String.format("*%04x", pc) };
+    }
+    return new String[] { functionNames[index] };
+  }
+
   /* called when moteID is updated */
   public void idUpdated(int newID) {
       
@@ -190,6 +269,9 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
 
   private long cyclesExecuted = 0;
   private long cyclesUntil = 0;
+  /* Simulation time of next millisecond to execute, -1 before first execution */
+  private long nextMillisecond = -1;
+
   public void execute(long t) {
     MicaClock clock = ((MicaClock) (myMoteInterfaceHandler.getClock()));
     double deviation = clock.getDeviation();
@@ -213,23 +295,81 @@ public class MicaZMote extends AbstractEmulatedMote implements Mote {
       skipped += 1;
       scheduleNextWakeup(t + Simulation.MILLISECOND);
     }
-    
-    /* Execute one millisecond */
-    cyclesUntil += NR_CYCLES_PER_MSEC;
+
+    if (nextMillisecond < 0) {
+      nextMillisecond = t;
+    }
+    if (t < nextMillisecond) {
+      /* Woken up early: this millisecond was already executed */
+      scheduleNextWakeup(nextMillisecond);
+      return;
+    }
+
+    /* Execute all milliseconds up to and including the current one.
+     * More than one is due after sleeping milliseconds were skipped. */
+    long milliseconds = (t - nextMillisecond) / Simulation.MILLISECOND + 1;
+    nextMillisecond += milliseconds * Simulation.MILLISECOND;
+    cyclesUntil += milliseconds * NR_CYCLES_PER_MSEC;
+    MainClock mainClock = interpreter.getMainClock();
     while (cyclesExecuted < cyclesUntil) {
+      if (mcuSleeping && interpreter.getInterruptTable().getPendingInterrupts() == 0) {
+        /* Sleeping: advance clock directly to next event instead of cycle by cycle */
+        long cycles = cyclesUntil - cyclesExecuted;
+        long delta = mainClock.getFirstEventDelta();
+        if (delta > 0 && delta < cycles) {
+          cycles = delta;
+        }
+        mainClock.advance(cycles);
+        cyclesExecuted += cycles;
+        continue;
+      }
       cyclesExecuted += interpreter.step();
     }
 
      /* book keeping */
-    executed += 1;
+    executed += milliseconds;
     
     /* TODO Poll mote interfaces? */
 
-    /* Schedule wakeup every millisecond */
-    /* TODO Optimize next wakeup time */
-    scheduleNextWakeup(t + Simulation.MILLISECOND);
+    /* Schedule wakeup every millisecond, or, if sleeping with the radio off,
+     * at the millisecond of the next clock event */
+    scheduleNextWakeup(nextMillisecond + getSkippableMilliseconds() * Simulation.MILLISECOND);
+  }
+
+  /**
+   * Returns the number of upcoming milliseconds in which the sleeping MCU
+   * has nothing to do. Milliseconds are never skipped while the radio is on,
+   * as received data must be processed without delay.
+   *
+   * @return Number of milliseconds that may be skipped
+   */
+  private long getSkippableMilliseconds() {
+    if (!mcuSleeping || interpreter.getInterruptTable().getPendingInterrupts() != 0) {
+      return 0;
+    }
+    if (!isRadioIdle()) {
+      return 0;
+    }
+    long delta = interpreter.getMainClock().getFirstEventDelta();
+    if (delta < 0) {
+      return MAX_SKIPPED_MSEC;
+    }
+    long eventCycle = cyclesExecuted + delta;
+    if (eventCycle < cyclesUntil) {
+      return 0;
+    }
+    return Math.min(MAX_SKIPPED_MSEC, (eventCycle - cyclesUntil) / NR_CYCLES_PER_MSEC);
   }
   
+  /**
+   * @return True if the radio is off, powered down or idle, and not changing
+   * state
+   */
+  private boolean isRadioIdle() {
+    int state = radio.getFiniteStateMachine().getCurrentState();
+    return state != FiniteStateMachine.IN_TRANSITION && state <= CC2420_STATE_IDLE;
+  }
+
   public boolean setConfigXML(Simulation simulation, Collection<Element> configXML, boolean visAvailable) {
     setSimulation(simulation);
     initEmulator(myMoteType.getContikiFirmwareFile());
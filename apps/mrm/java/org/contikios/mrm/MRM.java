@@ -34,7 +34,6 @@ import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.Random;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -88,7 +87,6 @@ public class MRM extends AbstractRadioMedium {
   private double CAPTURE_EFFECT_PREAMBLE_DURATION;
   
   private Simulation sim;
-  private Random random = null;
   private ChannelModel currentChannelModel = null;
 
   /**
@@ -98,7 +96,6 @@ public class MRM extends AbstractRadioMedium {
     super(simulation);
 
     sim = simulation;
-    random = simulation.getRandomGenerator();
     currentChannelModel = new ChannelModel(sim);
     
     WITH_CAPTURE_EFFECT = currentChannelModel.getParameterBooleanValue(ChannelModel.Parameter.captureEffect);
@@ -195,7 +192,7 @@ public class MRM extends AbstractRadioMedium {
 
       double recvProb = probData[0];
       double recvSignalStrength = probData[1];
-      if (recvProb == 1.0 || random.nextDouble() < recvProb) {
+      if (recvProb == 1.0 || getRandom(recv).nextDouble() < recvProb) {
         /* Yes, the receiver *may* receive this packet (it's strong enough) */
         if (!recv.isRadioOn()) {
           newConnection.addInterfered(recv);
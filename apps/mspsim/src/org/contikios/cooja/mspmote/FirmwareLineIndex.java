@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mspmote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import se.sics.mspsim.util.DebugInfo;
+import se.sics.mspsim.util.ELF;
+
+/**
+ * Compact index from source file lines to executable addresses of a
+ * firmware.
+ * <p>
+ * Each source file maps to sorted arrays of line numbers and addresses.
+ * Decoding the line information of a large firmware is slow, so the index
+ * is cached in a file next to the firmware, keyed by the firmware hash.
+ *
+ * @see MspMoteType#getFirmwareLineIndex()
+ */
+public class FirmwareLineIndex {
+  private static Logger logger = Logger.getLogger(FirmwareLineIndex.class);
+
+  private static final int MAGIC = 0x434c4931; /* "CLI1" */
+  private static final String CACHE_SUFFIX = ".lines";
+
+  private static class Lines {
+    final int[] lines; /* Sorted */
+    final int[] addresses;
+
+    Lines(int[] lines, int[] addresses) {
+      this.lines = lines;
+      this.addresses = addresses;
+    }
+  }
+
+  private final HashMap<File, Lines> files = new HashMap<File, Lines>();
+
+  private FirmwareLineIndex() {
+  }
+
+  /**
+   * @return Source files with executable lines
+   */
+  public File[] getFiles() {
+    return files.keySet().toArray(new File[0]);
+  }
+
+  /**
+   * Returns the executable address of a source line. If the file is not
+   * known by its path, it is matched by name.
+   *
+   * @param file Source file
+   * @param line Line number
+   * @return Executable address, or -1 if not found
+   */
+  public int getAddress(File file, int line) {
+    if (file == null || line < 0) {
+      return -1;
+    }
+
+    Lines lines = files.get(file);
+    if (lines == null) {
+      for (Map.Entry<File, Lines> entry: files.entrySet()) {
+        if (entry.getKey().getName().equals(file.getName())) {
+          lines = entry.getValue();
+          break;
+        }
+      }
+    }
+    if (lines == null) {
+      return -1;
+    }
+
+    int index = Arrays.binarySearch(lines.lines, line);
+    return index < 0 ? -1 : lines.addresses[index];
+  }
+
+  /**
+   * @return Executable addresses by line number, by source file
+   */
+  public Hashtable<File, Hashtable<Integer, Integer>> getLineTables() {
+    Hashtable<File, Hashtable<Integer, Integer>> lineTables =
+      new Hashtable<File, Hashtable<Integer, Integer>>();
+    for (Map.Entry<File, Lines> entry: files.entrySet()) {
+      Lines lines = entry.getValue();
+      Hashtable<Integer, Integer> lineTable = new Hashtable<Integer, Integer>();
+      for (int i = 0; i < lines.lines.length; i++) {
+        lineTable.put(lines.lines[i], lines.addresses[i]);
+      }
+      lineTables.put(entry.getKey(), lineTable);
+    }
+    return lineTables;
+  }
+
+  /**
+   * Loads the index of a firmware from its cache file, or creates it from
+   * the ELF debug information and updates the cache file.
+   *
+   * @param firmware Firmware file
+   * @param elf Decoded firmware
+   * @return Index
+   * @throws IOException If the firmware could not be read
+   */
+  public static FirmwareLineIndex load(File firmware, ELF elf) throws IOException {
+    String hash = hash(firmware);
+    File cache = new File(firmware.getPath() + CACHE_SUFFIX);
+
+    if (cache.exists()) {
+      try {
+        FirmwareLineIndex index = readCache(cache, hash);
+        if (index != null) {
+          return index;
+        }
+      } catch (IOException e) {
+        logger.warn("Ignoring bad line index " + cache + ": " + e.getMessage());
+      }
+    }
+
+    FirmwareLineIndex index = create(elf);
+    try {
+      index.writeCache(cache, hash);
+    } catch (IOException e) {
+      logger.warn("Could not write line index " + cache + ": " + e.getMessage());
+    }
+    return index;
+  }
+
+  /**
+   * Creates the index from the ELF debug information.
+   *
+   * @param elf Decoded firmware
+   * @return Index
+   */
+  public static FirmwareLineIndex create(ELF elf) {
+    FirmwareLineIndex index = new FirmwareLineIndex();
+    if (elf.getDebug() == null) {
+      // No debug information is available
+      return index;
+    }
+
+    /* Fetch all executable addresses */
+    ArrayList<Integer> addresses = elf.getDebug().getExecutableAddresses();
+    if (addresses == null) {
+      // No debug information is available
+      return index;
+    }
+
+    HashMap<File, TreeMap<Integer, Integer>> lineTables = new HashMap<File, TreeMap<Integer, Integer>>();
+    HashMap<String, File> canonicalFiles = new HashMap<String, File>();
+    for (int address: addresses) {
+      DebugInfo info = elf.getDebugInfo(address);
+      if (info == null) {
+        continue;
+      }
+      if (info.getPath() == null && info.getFile() == null) {
+        continue;
+      }
+      if (info.getLine() < 0) {
+        continue;
+      }
+
+      String name = info.getPath() + "/" + info.getFile();
+      File file = canonicalFiles.get(name);
+      if (file == null) {
+        if (info.getPath() != null) {
+          file = new File(info.getPath(), info.getFile());
+        } else {
+          file = new File(info.getFile());
+        }
+        try {
+          file = file.getCanonicalFile();
+        } catch (IOException e) {
+        } catch (java.security.AccessControlException e) {
+        }
+        canonicalFiles.put(name, file);
+      }
+
+      TreeMap<Integer, Integer> lineTable = lineTables.get(file);
+      if (lineTable == null) {
+        lineTable = new TreeMap<Integer, Integer>();
+        lineTables.put(file, lineTable);
+      }
+      lineTable.put(info.getLine(), address);
+    }
+
+    for (Map.Entry<File, TreeMap<Integer, Integer>> entry: lineTables.entrySet()) {
+      TreeMap<Integer, Integer> lineTable = entry.getValue();
+      int[] lines = new int[lineTable.size()];
+      int[] lineAddresses = new int[lineTable.size()];
+      int i = 0;
+      for (Map.Entry<Integer, Integer> line: lineTable.entrySet()) {
+        lines[i] = line.getKey();
+        lineAddresses[i] = line.getValue();
+        i++;
+      }
+      index.files.put(entry.getKey(), new Lines(lines, lineAddresses));
+    }
+    return index;
+  }
+
+  private static FirmwareLineIndex readCache(File cache, String hash) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache)));
+    try {
+      if (in.readInt() != MAGIC || !in.readUTF().equals(hash)) {
+        return null;
+      }
+      FirmwareLineIndex index = new FirmwareLineIndex();
+      int nrFiles = in.readInt();
+      for (int f = 0; f < nrFiles; f++) {
+        File file = new File(in.readUTF());
+        int nrLines = in.readInt();
+        int[] lines = new int[nrLines];
+        int[] addresses = new int[nrLines];
+        for (int i = 0; i < nrLines; i++) {
+          lines[i] = in.readInt();
+          addresses[i] = in.readInt();
+        }
+        index.files.put(file, new Lines(lines, addresses));
+      }
+      return index;
+    } finally {
+      in.close();
+    }
+  }
+
+  private void writeCache(File cache, String hash) throws IOException {
+    /* Write to temporary file first, concurrent loads may read the cache */
+    File tmpFile = File.createTempFile(cache.getName(), ".tmp", cache.getAbsoluteFile().getParentFile());
+    boolean written = false;
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeUTF(hash);
+        out.writeInt(files.size());
+        for (Map.Entry<File, Lines> entry: files.entrySet()) {
+          Lines lines = entry.getValue();
+          out.writeUTF(entry.getKey().getPath());
+          out.writeInt(lines.lines.length);
+          for (int i = 0; i < lines.lines.length; i++) {
+            out.writeInt(lines.lines[i]);
+            out.writeInt(lines.addresses[i]);
+          }
+        }
+      } finally {
+        out.close();
+      }
+      try {
+        Files.move(tmpFile.toPath(), cache.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(tmpFile.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      written = true;
+    } finally {
+      if (!written) {
+        tmpFile.delete();
+      }
+    }
+  }
+
+  private static String hash(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b: digest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
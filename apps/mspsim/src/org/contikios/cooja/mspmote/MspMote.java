@@ -36,7 +36,9 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.Observable;
+import java.util.Observer;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -50,13 +52,16 @@ import org.contikios.cooja.Simulation;
 import org.contikios.cooja.Watchpoint;
 import org.contikios.cooja.WatchpointMote;
 import org.contikios.cooja.interfaces.IPAddress;
+import org.contikios.cooja.interfaces.Radio;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.motes.AbstractEmulatedMote;
+import org.contikios.cooja.mspmote.interfaces.CC2520Radio;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
 import org.contikios.cooja.mspmote.interfaces.MspSerial;
 import org.contikios.cooja.mspmote.plugins.CodeVisualizerSkin;
 import org.contikios.cooja.mspmote.plugins.MspBreakpoint;
 import org.contikios.cooja.plugins.Visualizer;
+import org.contikios.cooja.util.ArrayUtils;
 
 import se.sics.mspsim.cli.CommandContext;
 import se.sics.mspsim.cli.CommandHandler;
@@ -75,7 +80,6 @@ import se.sics.mspsim.util.ConfigManager;
 import se.sics.mspsim.util.DebugInfo;
 import se.sics.mspsim.util.ELF;
 import se.sics.mspsim.util.MapEntry;
-import se.sics.mspsim.util.MapTable;
 import se.sics.mspsim.profiler.SimpleProfiler;
 
 import org.contikios.cooja.mspmote.interfaces.MspClock;
@@ -86,7 +90,8 @@ import org.contikios.cooja.mspmote.interfaces.MspClock;
 public abstract class MspMote extends AbstractEmulatedMote implements Mote, WatchpointMote {
   private static Logger logger = Logger.getLogger(MspMote.class);
 
-  private final static int EXECUTE_DURATION_US = 1; /* We always execute in 1 us steps */
+  private final static int EXECUTE_DURATION_US = 1; /* Shortest execution quantum */
+  private final static int MAX_EXECUTE_DURATION_US = 1000; /* Longest execution quantum */
 
   {
     Visualizer.registerVisualizerSkin(CodeVisualizerSkin.class);
@@ -116,6 +121,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     if (myMoteType != null) {
       initEmulator(myMoteType.getContikiFirmwareFile());
       myMoteInterfaceHandler = createMoteInterfaceHandler();
+      observeInteractions();
 
       /* TODO Create COOJA-specific window manager */
       registry.removeComponent("windowManager");
@@ -154,12 +160,6 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
           };
         }
       });
-
-      try {
-        debuggingInfo = ((MspMoteType)getType()).getFirmwareDebugInfo();
-      } catch (IOException e) {
-        throw (RuntimeException) new RuntimeException("Error: " + e.getMessage()).initCause(e);
-      }
     }
   }
 
@@ -214,7 +214,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     node.setup(config);
 
     this.myCpu = node.getCPU();
-    this.myCpu.setMonitorExec(true);
+    this.myCpu.setMonitorExec(false); /* See requestExecutionMonitoring() */
     this.myCpu.setTrace(0); /* TODO Enable */
     
     LogListener ll = new LogListener() {
@@ -234,15 +234,14 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
 
     logger.info("Loading firmware from: " + fileELF.getAbsolutePath());
     Cooja.setProgressMessage("Loading " + fileELF.getName());
+    /* The ELF is decoded once per mote type and shared between its motes */
     node.loadFirmware(((MspMoteType)getType()).getELF());
 
     /* Throw exceptions at bad memory access */
     /*myCpu.setThrowIfWarning(true);*/
 
     /* Create mote address memory */
-    MapTable map = ((MspMoteType)getType()).getELF().getMap();
-    MapEntry[] allEntries = map.getAllEntries();
-    myMemory = new MspMoteMemory(this, allEntries, myCpu);
+    myMemory = new MspMoteMemory(this, ((MspMoteType)getType()).getSymbolMap(), myCpu);
 
     myCpu.reset();
   }
@@ -269,6 +268,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
 
   public void setInterfaces(MoteInterfaceHandler moteInterfaceHandler) {
     myMoteInterfaceHandler = moteInterfaceHandler;
+    observeInteractions();
   }
 
   /**
@@ -294,8 +294,168 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   private long executed = 0;
   private long skipped = 0;
   
+  /* Current adaptive execution quantum */
+  private int executeDuration = EXECUTE_DURATION_US;
+  /* Set by interface observers when the mote interacted during execution */
+  private boolean interacted = false;
+  private final Observer interactionObserver = new Observer() {
+    public void update(Observable obs, Object obj) {
+      interacted = true;
+    }
+  };
+
+  /**
+   * Observes all mote interfaces for externally visible interactions,
+   * such as radio, serial or LED output.
+   */
+  private void observeInteractions() {
+    for (MoteInterface moteInterface: myMoteInterfaceHandler.getInterfaces()) {
+      moteInterface.deleteObserver(interactionObserver);
+      moteInterface.addObserver(interactionObserver);
+    }
+  }
+
+  /**
+   * @return True if the mote has no radio, or its radio is powered down
+   */
+  private boolean isRadioPoweredDown() {
+    Radio radio = myMoteInterfaceHandler.getRadio();
+    if (radio == null) {
+      return true;
+    }
+    if (radio instanceof Msp802154Radio) {
+      return ((Msp802154Radio) radio).isPoweredDown();
+    }
+    if (radio instanceof CC2520Radio) {
+      return ((CC2520Radio) radio).isPoweredDown();
+    }
+    /* Unknown power state */
+    return false;
+  }
+
+  /**
+   * Returns the duration of the next execution quantum.
+   * <p>
+   * Unless the simulation allows adaptive execution quanta, every quantum
+   * is one microsecond. Otherwise the quantum doubles after every quantum
+   * without interactions, and drops back to the shortest quantum when the
+   * mote interacted, for example by a radio state change. It never extends
+   * beyond the next pending simulation event, so input from other motes and
+   * the radio medium arrives at the same time as before.
+   * <p>
+   * Output produced within a quantum is seen at the quantum start time.
+   * Longer quanta are therefore only used while the radio is powered down
+   * and no breakpoints are set. A radio leaving power-down is an
+   * interaction, so all following quanta are short again.
+   *
+   * @param t Current time
+   * @return Quantum duration (microseconds)
+   * @see Simulation#setAdaptiveExecutionQuanta(boolean)
+   */
+  private int getExecuteDuration(long t) {
+    if (!simulation.getAdaptiveExecutionQuanta()) {
+      return EXECUTE_DURATION_US;
+    }
+    if (interacted) {
+      interacted = false;
+      executeDuration = EXECUTE_DURATION_US;
+    } else if (executeDuration < MAX_EXECUTE_DURATION_US) {
+      executeDuration = Math.min(executeDuration * 2, MAX_EXECUTE_DURATION_US);
+    }
+
+    if (!watchpoints.isEmpty()) {
+      return EXECUTE_DURATION_US;
+    }
+    if (!isRadioPoweredDown()) {
+      executeDuration = EXECUTE_DURATION_US;
+      return EXECUTE_DURATION_US;
+    }
+    long nextEvent = simulation.getNextEventTime();
+    if (nextEvent >= 0 && nextEvent - t < executeDuration) {
+      return (int) Math.max(EXECUTE_DURATION_US, nextEvent - t);
+    }
+    return executeDuration;
+  }
+
+  /**
+   * Input to the emulated hardware that is delivered as part of the mote's
+   * own execution, instead of through separate simulation events.
+   */
+  public interface ScheduledInput {
+    /**
+     * @return Time of next pending input, or -1 if no input is pending
+     */
+    public long getNextInputTime();
+
+    /**
+     * Delivers all input due at or before the given time.
+     *
+     * @param time Current time
+     */
+    public void deliverInput(long time);
+  }
+  private ScheduledInput[] scheduledInputs = new ScheduledInput[0];
+
+  /**
+   * Registers input to deliver when the mote executes. Input sources must
+   * request a wakeup, using {@link #scheduleNextWakeup(long)}, when new
+   * input is added earlier than all pending input.
+   *
+   * @param input Scheduled input
+   */
+  public void addScheduledInput(ScheduledInput input) {
+    scheduledInputs = ArrayUtils.add(scheduledInputs, input);
+  }
+
+  /**
+   * Delivers due scheduled input, and requests a wakeup for the next.
+   *
+   * @param t Current time
+   */
+  private void deliverScheduledInput(long t) {
+    boolean synced = false;
+    for (ScheduledInput input: scheduledInputs) {
+      long next = input.getNextInputTime();
+      if (next >= 0 && next <= t) {
+        if (!synced) {
+          /* Synchronize MSPSim's clock before the hardware sees the input */
+          synchronizeClock(t);
+          synced = true;
+        }
+        input.deliverInput(t);
+        next = input.getNextInputTime();
+      }
+      if (next >= 0) {
+        scheduleNextWakeup(next);
+      }
+    }
+  }
+
+  /**
+   * Advances MSPSim's clock to the given time without executing, so that
+   * the following execution step starts at that time. Unlike
+   * {@link #execute(long, int)} with zero duration, this schedules no
+   * wakeup and does no execution bookkeeping.
+   *
+   * @param t Current time
+   */
+  private void synchronizeClock(long t) {
+    if (!booted || lastExecute < 0 || t <= lastExecute) {
+      return;
+    }
+    try {
+      myCpu.stepMicros(t - lastExecute, 0);
+      lastExecute = t;
+    } catch (EmulationException e) {
+      String trace = e.getMessage() + "\n\n" + getStackTrace();
+      throw (ContikiError)
+      new ContikiError(trace).initCause(e);
+    }
+  }
+
   public void execute(long time) {
-    execute(time, EXECUTE_DURATION_US);
+    deliverScheduledInput(time);
+    execute(time, getExecuteDuration(time));
   }
 
   public void execute(long t, int duration) {
@@ -376,10 +536,33 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     return executeCLICommand("stacktrace");
   }
 
+  /* Set once a CLI command has registered a breakpoint or watchpoint */
+  private boolean cliExecutionMonitoring = false;
+
   public int executeCLICommand(String cmd, CommandContext context) {
+    if (!cliExecutionMonitoring && isWatchCommand(cmd)) {
+      /* CLI breakpoints are unknown to Cooja and may be cleared from the
+       * CLI at any time. Keep monitoring for the rest of the mote's life. */
+      cliExecutionMonitoring = true;
+      requestExecutionMonitoring();
+    }
     return commandHandler.executeCommand(cmd, context);
   }
 
+  /**
+   * @param cmd MSPSim CLI command line, possibly piped
+   * @return True if any command in the line is a break or watch command
+   */
+  private static boolean isWatchCommand(String cmd) {
+    for (String command: cmd.split("\\|")) {
+      String name = command.trim().split("\\s+")[0];
+      if (name.equals("break") || name.equals("watch")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public String executeCLICommand(String cmd) {
     final StringBuilder sb = new StringBuilder();
     LineListener ll = new LineListener() {
@@ -412,12 +595,7 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     if (myMoteInterfaceHandler == null) {
       myMoteInterfaceHandler = createMoteInterfaceHandler();
     }
-
-    try {
-      debuggingInfo = ((MspMoteType)getType()).getFirmwareDebugInfo();
-    } catch (IOException e) {
-      throw (RuntimeException) new RuntimeException("Error: " + e.getMessage()).initCause(e);
-    }
+    observeInteractions();
 
     for (Element element: configXML) {
       String name = element.getName();
@@ -549,11 +727,74 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
     /*return executeCLICommand("line " + myCpu.getPC());*/
   }
 
+  public String[] getCallStackFunctions() {
+    ArrayList<String> functions = new ArrayList<String>();
+
+    /* Call stack tracked by MSPSim's profiler, innermost function first */
+    if (myCpu.getProfiler() instanceof SimpleProfiler) {
+      SimpleProfiler sp = (SimpleProfiler)myCpu.getProfiler();
+      int depth = sp.getStackDepth();
+      for (int frame = 0; frame < depth; frame++) {
+        MapEntry mapEntry = sp.getCallMapEntry(frame);
+        if (mapEntry != null) {
+          functions.add(mapEntry.getName());
+        }
+      }
+    }
+
+    if (functions.isEmpty()) {
+      /* No calls tracked: use function at PC */
+      int pc = myCpu.getPC();
+      ELF elf = myCpu.getRegistry().getComponent(ELF.class);
+      DebugInfo di = elf == null ? null : elf.getDebugInfo(pc);
+      String function = di == null ? null : di.getFunction();
+      if (function != null && function.contains(":")) {
+        /* strip arguments */
+        function = function.substring(0, function.lastIndexOf(':'));
+      }
+      functions.add(function != null ? function : String.format("*%04x", pc));
+    }
+
+    Collections.reverse(functions);
+    return functions.toArray(new String[0]);
+  }
+
+
+  /* Execution monitoring */
+  private int executionMonitoringRequests = 0;
+
+  /**
+   * Enables MSPSim execution monitoring, needed by breakpoints and by
+   * plugins inspecting executed instructions. Monitoring slows down the
+   * CPU emulation, and is therefore only enabled while requested.
+   * Each request must be matched by a call to
+   * {@link #releaseExecutionMonitoring()}.
+   */
+  public synchronized void requestExecutionMonitoring() {
+    if (executionMonitoringRequests++ == 0) {
+      myCpu.setMonitorExec(true);
+    }
+  }
+
+  /**
+   * Releases an execution monitoring request. Monitoring is disabled when
+   * the last request is released.
+   *
+   * @see #requestExecutionMonitoring()
+   */
+  public synchronized void releaseExecutionMonitoring() {
+    if (executionMonitoringRequests == 0) {
+      logger.warn(this + ": Execution monitoring released more times than requested");
+      return;
+    }
+    if (--executionMonitoringRequests == 0) {
+      myCpu.setMonitorExec(false);
+    }
+  }
 
   /* WatchpointMote */
   private ArrayList<WatchpointListener> watchpointListeners = new ArrayList<WatchpointListener>();
   private ArrayList<MspBreakpoint> watchpoints = new ArrayList<MspBreakpoint>();
-  private Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null;
 
   public void addWatchpointListener(WatchpointListener listener) {
     watchpointListeners.add(listener);
@@ -614,36 +855,16 @@ public abstract class MspMote extends AbstractEmulatedMote implements Mote, Watc
   }
 
   public int getExecutableAddressOf(File file, int lineNr) {
-    if (file == null || lineNr < 0 || debuggingInfo == null) {
+    if (file == null || lineNr < 0) {
       return -1;
     }
 
-    /* Match file */
-    Hashtable<Integer, Integer> lineTable = debuggingInfo.get(file);
-    if (lineTable == null) {
-      for (File f: debuggingInfo.keySet()) {
-        if (f != null && f.getName().equals(file.getName())) {
-          lineTable = debuggingInfo.get(f);
-          break;
-        }
-      }
-    }
-    if (lineTable == null) {
+    try {
+      return ((MspMoteType)getType()).getFirmwareLineIndex().getAddress(file, lineNr);
+    } catch (IOException e) {
+      logger.warn("No line information: " + e.getMessage());
       return -1;
     }
-
-    /* Match line number */
-    Integer address = lineTable.get(lineNr);
-    if (address != null) {
-      for (Integer l: lineTable.keySet()) {
-        if (l != null && l.intValue() == lineNr) {
-          /* Found line address */
-          return lineTable.get(l);
-        }
-      }
-    }
-
-    return -1;
   }
 
   private long lastBreakpointCycles = -1;
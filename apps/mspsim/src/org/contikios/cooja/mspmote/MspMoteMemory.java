@@ -32,7 +32,6 @@ package org.contikios.cooja.mspmote;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -44,24 +43,21 @@ import org.contikios.cooja.mote.memory.MemoryLayout;
 import se.sics.mspsim.core.MSP430;
 import se.sics.mspsim.core.Memory.AccessMode;
 import se.sics.mspsim.core.Memory.AccessType;
-import se.sics.mspsim.util.MapEntry;
 
 public class MspMoteMemory implements MemoryInterface {
   private static Logger logger = Logger.getLogger(MspMoteMemory.class);
-  private final ArrayList<MapEntry> mapEntries;
+  private final Map<String, Symbol> symbols;
   private final MemoryLayout memLayout;
 
   private final MSP430 cpu;
 
-  public MspMoteMemory(Mote mote, MapEntry[] allEntries, MSP430 cpu) {
-    this.mapEntries = new ArrayList<MapEntry>();
-
-    for (MapEntry entry: allEntries) {
-      if (entry.getType() == MapEntry.TYPE.variable) {
-        mapEntries.add(entry);
-      }
-    }
-
+  /**
+   * @param mote Mote
+   * @param symbols Variables of the firmware, shared by all motes of a type
+   * @param cpu MSP430 cpu
+   */
+  public MspMoteMemory(Mote mote, Map<String, Symbol> symbols, MSP430 cpu) {
+    this.symbols = symbols;
     this.cpu = cpu;
     memLayout = new MemoryLayout(ByteOrder.LITTLE_ENDIAN, MemoryLayout.ARCH_16BIT, 2);
   }
@@ -102,6 +98,63 @@ public class MspMoteMemory implements MemoryInterface {
     System.arraycopy(memInts, 0, cpu.memory, (int) address, data.length);
   }
 
+  /* MSP430 memory is little-endian, one byte per int */
+  private long readValue(int address, int size) {
+    int[] mem = cpu.memory;
+    long value = 0;
+    for (int i = size - 1; i >= 0; i--) {
+      value = (value << 8) | (mem[address + i] & 0xff);
+    }
+    return value;
+  }
+
+  private void writeValue(int address, int size, long value) {
+    int[] mem = cpu.memory;
+    for (int i = 0; i < size; i++) {
+      mem[address + i] = (int) (value >> (8 * i)) & 0xff;
+    }
+  }
+
+  @Override
+  public byte getInt8(long address) {
+    return (byte) cpu.memory[(int) address];
+  }
+
+  @Override
+  public short getInt16(long address) {
+    return (short) readValue((int) address, 2);
+  }
+
+  @Override
+  public int getInt32(long address) {
+    return (int) readValue((int) address, 4);
+  }
+
+  @Override
+  public long getInt64(long address) {
+    return readValue((int) address, 8);
+  }
+
+  @Override
+  public void setInt8(long address, byte value) {
+    cpu.memory[(int) address] = value & 0xff;
+  }
+
+  @Override
+  public void setInt16(long address, short value) {
+    writeValue((int) address, 2, value);
+  }
+
+  @Override
+  public void setInt32(long address, int value) {
+    writeValue((int) address, 4, value);
+  }
+
+  @Override
+  public void setInt64(long address, long value) {
+    writeValue((int) address, 8, value);
+  }
+
   @Override
   public void clearMemory() {
     Arrays.fill(cpu.memory, 0);
@@ -114,18 +167,7 @@ public class MspMoteMemory implements MemoryInterface {
 
   @Override
   public Map<String, Symbol> getSymbolMap() {
-    Map<String, Symbol> vars = new HashMap<>();
-    for (MapEntry entry : mapEntries) {
-      if (entry.getType() != MapEntry.TYPE.variable) {
-        continue;
-      }
-      vars.put(entry.getName(), new Symbol(
-              Symbol.Type.VARIABLE,
-              entry.getName(), 
-              entry.getAddress(), 
-              entry.getSize()));
-    }
-    return vars;
+    return symbols;
   }
 
   @Override
@@ -33,7 +33,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 
 import javax.swing.Icon;
 import javax.swing.JComponent;
@@ -50,10 +53,11 @@ import org.contikios.cooja.MoteType;
 import org.contikios.cooja.ProjectConfig;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.interfaces.IPAddress;
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
 import org.contikios.cooja.mspmote.interfaces.MspSerial;
-import se.sics.mspsim.util.DebugInfo;
 import se.sics.mspsim.util.ELF;
+import se.sics.mspsim.util.MapEntry;
 
 /**
  * MSP430-based mote types emulated in MSPSim.
@@ -343,65 +347,67 @@ public abstract class MspMoteType implements MoteType {
     return elf;
   }
 
-  private Hashtable<File, Hashtable<Integer, Integer>> debuggingInfo = null; /* cached */
-  public Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo()
-  throws IOException {
-    if (debuggingInfo == null) {
-      debuggingInfo = getFirmwareDebugInfo(getELF());
+  private Map<String, Symbol> symbols = null; /* cached */
+  /**
+   * Returns the variables of the firmware, decoded once from the ELF symbol
+   * table and shared read-only by all motes of this type.
+   *
+   * @return Unmodifiable map of variable names to symbols
+   * @throws IOException If the ELF could not be loaded
+   */
+  public Map<String, Symbol> getSymbolMap() throws IOException {
+    if (symbols == null) {
+      Map<String, Symbol> vars = new HashMap<>();
+      for (MapEntry entry: getELF().getMap().getAllEntries()) {
+        if (entry.getType() != MapEntry.TYPE.variable) {
+          continue;
+        }
+        vars.put(entry.getName(), new Symbol(
+                Symbol.Type.VARIABLE,
+                entry.getName(),
+                entry.getAddress(),
+                entry.getSize()));
+      }
+      symbols = Collections.unmodifiableMap(vars);
     }
-    return debuggingInfo;
+    return symbols;
   }
 
-  public static Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo(ELF elf) {
-    Hashtable<File, Hashtable<Integer, Integer>> fileToLineHash =
-      new Hashtable<File, Hashtable<Integer, Integer>>();
-
-    if (elf.getDebug() == null) {
-      // No debug information is available
-      return fileToLineHash;
+  private FirmwareLineIndex lineIndex = null; /* cached */
+  /**
+   * Returns the index from source lines to executable addresses. The index
+   * is created on first use, or loaded from its cache next to the firmware.
+   *
+   * @return Line index
+   * @throws IOException If the firmware could not be read
+   */
+  public synchronized FirmwareLineIndex getFirmwareLineIndex() throws IOException {
+    if (lineIndex == null) {
+      lineIndex = FirmwareLineIndex.load(getContikiFirmwareFile(), getELF());
     }
+    return lineIndex;
+  }
 
-    /* Fetch all executable addresses */
-    ArrayList<Integer> addresses = elf.getDebug().getExecutableAddresses();
-    if (addresses == null) {
-      // No debug information is available
-      return fileToLineHash;
-    }
-
-    for (int address: addresses) {
-      DebugInfo info = elf.getDebugInfo(address);
-      if (info == null) {
-        continue;
-      }
-      if (info.getPath() == null && info.getFile() == null) {
-        continue;
-      }
-      if (info.getLine() < 0) {
-        continue;
-      }
-
-      File file;
-      if (info.getPath() != null) {
-        file = new File(info.getPath(), info.getFile());
-      } else {
-        file = new File(info.getFile());
-      }
-      try {
-        file = file.getCanonicalFile();
-      } catch (IOException e) {
-      } catch (java.security.AccessControlException e) {
-      }
-
-      Hashtable<Integer, Integer> lineToAddrHash = fileToLineHash.get(file);
-      if (lineToAddrHash == null) {
-        lineToAddrHash = new Hashtable<Integer, Integer>();
-        fileToLineHash.put(file, lineToAddrHash);
-      }
-
-      lineToAddrHash.put(info.getLine(), address);
-    }
+  /**
+   * @return Executable addresses by line number, by source file
+   * @throws IOException If the firmware could not be read
+   * @deprecated Use {@link #getFirmwareLineIndex()}, which avoids
+   * building a table entry per executable line
+   */
+  @Deprecated
+  public Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo()
+  throws IOException {
+    return getFirmwareLineIndex().getLineTables();
+  }
 
-    return fileToLineHash;
+  /**
+   * @param elf Decoded firmware
+   * @return Executable addresses by line number, by source file
+   * @deprecated Use {@link FirmwareLineIndex#create(ELF)}
+   */
+  @Deprecated
+  public static Hashtable<File, Hashtable<Integer, Integer>> getFirmwareDebugInfo(ELF elf) {
+    return FirmwareLineIndex.create(elf).getLineTables();
   }
 
 }
@@ -369,6 +369,13 @@ public class CC2520Radio extends Radio implements CustomDataRadio {
     return true;
   }
 
+  /**
+   * @return True if the radio chip is powered down
+   */
+  public boolean isPoweredDown() {
+    return radio.getMode() == CC2520.MODE_POWER_OFF;
+  }
+
   public boolean canReceiveFrom(CustomDataRadio radio) {
     if (radio.getClass().equals(this.getClass())) {
       return true;
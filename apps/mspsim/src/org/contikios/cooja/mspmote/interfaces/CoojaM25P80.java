@@ -30,7 +30,12 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 import org.contikios.coffee.CoffeeConfiguration;
@@ -39,35 +44,52 @@ import se.sics.mspsim.chip.M25P80;
 import se.sics.mspsim.chip.Storage;
 import se.sics.mspsim.core.MSP430Core;
 
+/**
+ * M25P80 external flash.
+ * <p>
+ * The flash contents are kept in sparse pages on the heap, allocated at
+ * first non-zero write, so untouched flash costs no memory. Alternatively,
+ * the contents can be mapped from an image file.
+ *
+ * @see #setImage(File, File)
+ */
 public class CoojaM25P80 extends M25P80 implements CoffeeImage {
 
   public static int SIZE = 1024*1024;
-  private byte[] data = new byte[SIZE];
+  private static final int PAGE_SIZE = 4096;
+
+  private final byte[][] pages = new byte[SIZE/PAGE_SIZE][];
+
+  /* Memory-mapped contents, replacing pages when set */
+  private MappedByteBuffer image = null;
+  private File imageFile = null;
+  private File templateFile = null;
+
   private long pos;
   private Storage storage = new Storage() {
 
     @Override
     public int read(long pos, byte[] buffer) throws IOException {
-        System.arraycopy(data, (int) pos, buffer, 0, buffer.length);
+        readData(pos, buffer, 0, buffer.length);
         return buffer.length;
     }
 
     @Override
     public int read(long pos, byte[] buffer, int offset, int len)
             throws IOException {
-        System.arraycopy(data, (int) pos, buffer, offset, len);
+        readData(pos, buffer, offset, len);
         return len;
     }
 
     @Override
     public void write(long pos, byte[] buffer) throws IOException {
-        System.arraycopy(buffer, 0, data, (int) pos, buffer.length);
+        writeData(pos, buffer, 0, buffer.length);
     }
 
     @Override
     public void write(long pos, byte[] buffer, int offset, int len)
             throws IOException {
-        System.arraycopy(buffer, offset, data, (int) pos, len);
+        writeData(pos, buffer, offset, len);
     }
 
     @Override
@@ -108,17 +130,206 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
     setStorage(storage);
   }
 
+  private void checkRange(long pos, int len) throws IOException {
+    if (pos < 0 || len < 0 || pos + len > SIZE) {
+      throw new IOException("Flash access out of range: " + pos + "+" + len);
+    }
+  }
+
+  private void readData(long pos, byte[] b, int off, int len) throws IOException {
+    checkRange(pos, len);
+    if (image != null) {
+      ByteBuffer src = image.duplicate();
+      src.position((int) pos);
+      src.get(b, off, len);
+      return;
+    }
+    int address = (int) pos;
+    while (len > 0) {
+      byte[] page = pages[address/PAGE_SIZE];
+      int pageOffset = address % PAGE_SIZE;
+      int n = Math.min(len, PAGE_SIZE - pageOffset);
+      if (page == null) {
+        Arrays.fill(b, off, off + n, (byte) 0);
+      } else {
+        System.arraycopy(page, pageOffset, b, off, n);
+      }
+      address += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private void writeData(long pos, byte[] b, int off, int len) throws IOException {
+    checkRange(pos, len);
+    if (image != null) {
+      ByteBuffer dst = image.duplicate();
+      dst.position((int) pos);
+      dst.put(b, off, len);
+      return;
+    }
+    int address = (int) pos;
+    while (len > 0) {
+      int pageIndex = address/PAGE_SIZE;
+      int pageOffset = address % PAGE_SIZE;
+      int n = Math.min(len, PAGE_SIZE - pageOffset);
+      if (pages[pageIndex] == null && !isZero(b, off, n)) {
+        pages[pageIndex] = new byte[PAGE_SIZE];
+      }
+      if (pages[pageIndex] != null) {
+        System.arraycopy(b, off, pages[pageIndex], pageOffset, n);
+      }
+      address += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private void clearData(long pos, int len) throws IOException {
+    byte[] zeros = new byte[Math.min(len, PAGE_SIZE)];
+    while (len > 0) {
+      int n = Math.min(len, zeros.length);
+      writeData(pos, zeros, 0, n);
+      pos += n;
+      len -= n;
+    }
+  }
+
+  private static boolean isZero(byte[] b, int off, int len) {
+    for (int i = off; i < off + len; i++) {
+      if (b[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Maps the flash contents from an image file.
+   * <p>
+   * An existing image file is used as is. A new image file is created
+   * sparse, and initialized from the template if given, otherwise from the
+   * current flash contents. Without an image file, a template of full flash
+   * size is mapped privately: motes provisioned from the same template share
+   * its unmodified pages copy-on-write, and changes are not saved. The
+   * template is never modified, but must be writable to be mapped privately.
+   * Without either, the contents are kept on the heap again.
+   *
+   * @param file Image file, or null
+   * @param template Template image file, or null
+   * @throws IOException At failure
+   */
+  public void setImage(File file, File template) throws IOException {
+    /* Current contents */
+    byte[][] contents = new byte[pages.length][];
+    byte[] page = new byte[PAGE_SIZE];
+    for (int i = 0; i < pages.length; i++) {
+      readData((long) i*PAGE_SIZE, page, 0, PAGE_SIZE);
+      if (!isZero(page, 0, PAGE_SIZE)) {
+        contents[i] = page.clone();
+      }
+    }
+    closeImage();
+    Arrays.fill(pages, null);
+
+    if (template != null && file == null && template.length() == SIZE) {
+      image = map(template, FileChannel.MapMode.PRIVATE);
+      templateFile = template;
+      return;
+    }
+
+    if (template != null) {
+      contents = readTemplate(template);
+      templateFile = template;
+    }
+    if (file == null) {
+      System.arraycopy(contents, 0, pages, 0, pages.length);
+      return;
+    }
+
+    boolean created = !file.exists() || file.length() == 0;
+    image = map(file, FileChannel.MapMode.READ_WRITE);
+    imageFile = file;
+    if (created) {
+      for (int i = 0; i < contents.length; i++) {
+        if (contents[i] != null) {
+          writeData((long) i*PAGE_SIZE, contents[i], 0, PAGE_SIZE);
+        }
+      }
+    }
+  }
+
+  private static MappedByteBuffer map(File file, FileChannel.MapMode mode) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      if (mode == FileChannel.MapMode.READ_WRITE && raf.length() < SIZE) {
+        raf.setLength(SIZE); /* Sparse on most file systems */
+      }
+      return raf.getChannel().map(mode, 0, SIZE);
+    } finally {
+      /* The mapping stays valid after closing the file */
+      raf.close();
+    }
+  }
+
+  private static byte[][] readTemplate(File template) throws IOException {
+    byte[][] contents = new byte[SIZE/PAGE_SIZE][];
+    RandomAccessFile raf = new RandomAccessFile(template, "r");
+    try {
+      byte[] page = new byte[PAGE_SIZE];
+      long length = Math.min(raf.length(), SIZE);
+      for (int i = 0; (long) i*PAGE_SIZE < length; i++) {
+        Arrays.fill(page, (byte) 0);
+        raf.seek((long) i*PAGE_SIZE);
+        raf.readFully(page, 0, (int) Math.min(PAGE_SIZE, length - (long) i*PAGE_SIZE));
+        if (!isZero(page, 0, PAGE_SIZE)) {
+          contents[i] = page.clone();
+        }
+      }
+    } finally {
+      raf.close();
+    }
+    return contents;
+  }
+
+  /**
+   * Writes a mapped image file to disk, and stops using it. The flash
+   * contents are lost.
+   */
+  public void closeImage() {
+    if (image != null && imageFile != null) {
+      image.force();
+    }
+    image = null;
+    imageFile = null;
+    templateFile = null;
+  }
+
+  /**
+   * @return Image file, or null
+   */
+  public File getImageFile() {
+    return imageFile;
+  }
+
+  /**
+   * @return Template image file, or null
+   */
+  public File getTemplateFile() {
+    return templateFile;
+  }
+
   public void seek(long pos) throws IOException {
     this.pos = pos;
   }
 
   public int readFully(byte[] b) throws IOException {
-    System.arraycopy(data, (int) pos, b, 0, b.length);
+    readData(pos, b, 0, b.length);
     return b.length;
   }
 
   public void write(byte[] b) throws IOException {
-    System.arraycopy(b, 0, data, (int) pos, b.length);
+    writeData(pos, b, 0, b.length);
   }
 
   /**
@@ -126,7 +337,7 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#erase(int, int)
    */
   public void erase(int size, int offset) throws IOException {
-    Arrays.fill(data, COFFEE_CONF.startOffset + offset, size, (byte)0);
+    clearData(COFFEE_CONF.startOffset + offset, size);
   }
 
   /**
@@ -142,7 +353,7 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#read(byte[], int, int)
    */
   public void read(byte[] bytes, int size, int offset) throws IOException {
-    System.arraycopy(data, COFFEE_CONF.startOffset + offset, bytes, 0, size);
+    readData(COFFEE_CONF.startOffset + offset, bytes, 0, size);
   }
 
   /**
@@ -150,7 +361,7 @@ public class CoojaM25P80 extends M25P80 implements CoffeeImage {
    * @see org.contikios.coffee.CoffeeImage#write(byte[], int, int)
    */
   public void write(byte[] bytes, int size, int offset) throws IOException {
-    System.arraycopy(bytes, 0, data, COFFEE_CONF.startOffset + offset, size);
+    writeData(COFFEE_CONF.startOffset + offset, bytes, 0, size);
   }
 
 }
@@ -39,7 +39,6 @@ import org.contikios.cooja.Mote;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.radiomediums.AbstractRadioMedium;
 
-import org.contikios.cooja.mspmote.MspMoteTimeEvent;
 import org.contikios.cooja.mspmote.interfaces.Msp802154Radio;
 
 
@@ -59,12 +58,30 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
   private static final double NOISE_FLOOR = AbstractRadioMedium.SS_WEAK;
   private static final double GOOD_SIGNAL = NOISE_FLOOR + 15.0;
 
+  /* Number of chips in the codeword of a symbol that carry data */
+  private static final int CHIPS_PER_SYMBOL = 31;
+
   private Random random = null;
 
+  /* Chip errors are sampled by drawing the distance to the next error */
+  private double errorDistanceRate = -1;
+  private long chipsUntilError = 0;
+
   public Msp802154BitErrorRadio(Mote m) {
     super(m);
+  }
 
-    random = getMote().getSimulation().getRandomGenerator();
+  /* Draws the number of error-free chips before the next chip error.
+   * The distance is geometrically distributed, which is equivalent to
+   * drawing an independent error for every chip. */
+  private long nextErrorDistance(double bitErrorRate) {
+    if (random == null) {
+      /* Per-mote stream, fetched on first use */
+      random = getMote().getSimulation().getRandomStreams().getMoteStream(getMote(), "bit errors");
+    }
+    double u = 1.0 - random.nextDouble(); /* (0, 1] */
+    double distance = Math.floor(Math.log(u) / Math.log1p(-bitErrorRate));
+    return (long) Math.min(distance, Integer.MAX_VALUE);
   }
 
   /* The MSK-transformed symbol-to-codeword table.
@@ -97,16 +114,22 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
   /* Send a symbol over the air with a specific bit error rate */
   private int transceiveSymbolWithErrors(int txSymbol, double bitErrorRate) {
     /* First, transmit (encode and randomly corrupt) it */
+    if (chipsUntilError >= CHIPS_PER_SYMBOL) {
+      /* No errors in this symbol */
+      chipsUntilError -= CHIPS_PER_SYMBOL;
+      return txSymbol;
+    }
+
     int chipSequence = mskEncodeTable[txSymbol];
-    /* Note: loop until 31, not until 32 here, as the highest bit in the codeword
+    /* Note: stop at 31, not at 32 here, as the highest bit in the codeword
      * is irrelevant for MSK encoded data, and therefore should not come into
      * the Hamming distance calculations. */
-    for (int i = 0; i < 31; ++i) {
-      double p = random.nextDouble();
-      if (p < bitErrorRate) {
-        chipSequence ^= (1 << i);
-      }
+    long chip = chipsUntilError;
+    while (chip < CHIPS_PER_SYMBOL) {
+      chipSequence ^= (1 << (int) chip);
+      chip += 1 + nextErrorDistance(bitErrorRate);
     }
+    chipsUntilError = chip - CHIPS_PER_SYMBOL;
 
     /* Now receive (decode) it */
     int bestRxSymbol = 0;
@@ -346,6 +369,12 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
       } else if (bitErrorRate >= 0.5) {
         inputByte = (byte) 0xFF;
       } else {
+        if (bitErrorRate != errorDistanceRate) {
+          /* Errors are memoryless: redraw the distance for the new rate */
+          errorDistanceRate = bitErrorRate;
+          chipsUntilError = nextErrorDistance(bitErrorRate);
+        }
+
         /* convert to an unsigned int in order to prettify subsequent operations with bits */
         int incomingByteAsInt = lastIncomingByte;
         if (incomingByteAsInt < 0) incomingByteAsInt += 256;
@@ -358,13 +387,6 @@ public class Msp802154BitErrorRadio extends Msp802154Radio {
       }
     }
 
-    mote.getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        super.execute(t);
-        radio.receivedByte(inputByte);
-        mote.requestImmediateWakeup();
-      }
-    }, mote.getSimulation().getSimulationTime());
-
+    deliverByte(inputByte, mote.getSimulation().getSimulationTime());
   }
 }
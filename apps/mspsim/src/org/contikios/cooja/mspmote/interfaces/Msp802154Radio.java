@@ -30,6 +30,7 @@
 
 package org.contikios.cooja.mspmote.interfaces;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import org.apache.log4j.Logger;
@@ -83,12 +84,16 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
   private RadioPacket lastOutgoingPacket = null;
   private RadioPacket lastIncomingPacket = null;
 
+  private final ByteDelivery byteDelivery;
+
   public Msp802154Radio(Mote m) {
     this.mote = (MspMote)m;
     this.radio = this.mote.getCPU().getChip(Radio802154.class);
     if (radio == null) {
       throw new IllegalStateException("Mote is not equipped with an IEEE 802.15.4 radio");
     }
+    byteDelivery = new ByteDelivery();
+    mote.addScheduledInput(byteDelivery);
 
     radio.addRFListener(new RFListener() {
       int len = 0;
@@ -223,15 +228,7 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
       if (isInterfered()) {
         b = (byte) 0xFF;
       }
-
-      final byte byteToDeliver = b;
-      getMote().getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-        public void execute(long t) {
-          super.execute(t);
-          radio.receivedByte(byteToDeliver);
-          mote.requestImmediateWakeup();
-        }
-      }, deliveryTime);
+      deliverByte(b, deliveryTime);
       deliveryTime += DELAY_BETWEEN_BYTES;
     }
   }
@@ -258,14 +255,75 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
     } else {
       inputByte = lastIncomingByte;
     }
-    mote.getSimulation().scheduleEvent(new MspMoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        super.execute(t);
-        radio.receivedByte(inputByte);
-        mote.requestImmediateWakeup();
+    deliverByte(inputByte, mote.getSimulation().getSimulationTime());
+  }
+
+  /**
+   * Schedules delivery of a received byte to the radio chip.
+   *
+   * @param b Byte
+   * @param time Simulation time at which the chip receives the byte
+   */
+  protected void deliverByte(byte b, long time) {
+    byteDelivery.add(b, time);
+  }
+
+  /**
+   * Delivers received bytes to the radio chip at their reception times.
+   *
+   * Bytes are delivered by the mote itself when it executes, see
+   * {@link MspMote#addScheduledInput(MspMote.ScheduledInput)}. While the
+   * mote is active, bytes are picked up by execution events that run
+   * anyway. A sleeping mote is woken once per due byte. No separate
+   * delivery events are scheduled.
+   */
+  private class ByteDelivery implements MspMote.ScheduledInput {
+    private byte[] data = new byte[128];
+    private long[] times = new long[128];
+    private int next = 0; /* Index of next byte to deliver */
+    private int count = 0; /* Index after last pending byte */
+
+    public void add(byte b, long time) {
+      if (count == data.length) {
+        if (next > 0) {
+          /* Compact */
+          System.arraycopy(data, next, data, 0, count - next);
+          System.arraycopy(times, next, times, 0, count - next);
+          count -= next;
+          next = 0;
+        } else {
+          data = Arrays.copyOf(data, 2*data.length);
+          times = Arrays.copyOf(times, 2*times.length);
+        }
+      }
+
+      /* Keep bytes ordered by delivery time */
+      int pos = count;
+      while (pos > next && times[pos-1] > time) {
+        data[pos] = data[pos-1];
+        times[pos] = times[pos-1];
+        pos--;
       }
-    }, mote.getSimulation().getSimulationTime());
+      data[pos] = b;
+      times[pos] = time;
+      count++;
+
+      mote.scheduleNextWakeup(times[next]);
+    }
+
+    public long getNextInputTime() {
+      return next < count ? times[next] : -1;
+    }
 
+    public void deliverInput(long t) {
+      while (next < count && times[next] <= t) {
+        radio.receivedByte(data[next++]);
+      }
+      if (next == count) {
+        next = 0;
+        count = 0;
+      }
+    }
   }
 
   /* General radio support */
@@ -424,6 +482,13 @@ public class Msp802154Radio extends Radio implements CustomDataRadio {
     }
     return true;
   }
+
+  /**
+   * @return True if the radio chip is powered down
+   */
+  public boolean isPoweredDown() {
+    return radio.getMode() == CC2420.MODE_POWER_OFF;
+  }
   
   public boolean canReceiveFrom(CustomDataRadio radio) {
     if (radio.getClass().equals(this.getClass())) {
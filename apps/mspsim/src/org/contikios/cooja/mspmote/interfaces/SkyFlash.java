@@ -50,8 +50,10 @@ public class SkyFlash extends MoteInterface {
   private static Logger logger = Logger.getLogger(SkyFlash.class);
 
   protected final CoojaM25P80 m24p80;
+  private final Mote mote;
 
   public SkyFlash(Mote mote) {
+    this.mote = mote;
     MspMote mspMote = (MspMote) mote;
     m24p80 = (CoojaM25P80) mspMote.getCPU().getChip(CoojaM25P80.class);
     if (m24p80 == null) {
@@ -150,10 +152,47 @@ public class SkyFlash extends MoteInterface {
   }
 
   public Collection<Element> getConfigXML() {
-    return null;
+    if (m24p80.getImageFile() == null && m24p80.getTemplateFile() == null) {
+      return null;
+    }
+
+    Vector<Element> config = new Vector<Element>();
+    Element element;
+    if (m24p80.getImageFile() != null) {
+      element = new Element("image");
+      File file = mote.getSimulation().getCooja().createPortablePath(m24p80.getImageFile());
+      element.setText(file.getPath().replace('\\', '/'));
+      config.add(element);
+    }
+    if (m24p80.getTemplateFile() != null) {
+      element = new Element("template");
+      File file = mote.getSimulation().getCooja().createPortablePath(m24p80.getTemplateFile());
+      element.setText(file.getPath().replace('\\', '/'));
+      config.add(element);
+    }
+    return config;
   }
 
   public void setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    File image = null;
+    File template = null;
+    for (Element element : configXML) {
+      if (element.getName().equals("image")) {
+        image = mote.getSimulation().getCooja().restorePortablePath(new File(element.getText()));
+      } else if (element.getName().equals("template")) {
+        template = mote.getSimulation().getCooja().restorePortablePath(new File(element.getText()));
+      }
+    }
+    try {
+      m24p80.setImage(image, template);
+    } catch (IOException e) {
+      logger.fatal("Could not map flash image: " + e.getMessage());
+    }
+  }
+
+  public void removed() {
+    super.removed();
+    m24p80.closeImage();
   }
 
   public static void writeDialogFileBytes(Component parent, byte[] data) {
@@ -141,6 +141,7 @@ public class MspBreakpoint implements Watchpoint {
       }
     };
     mspMote.getCPU().addWatchPoint(address, memoryMonitor);
+    mspMote.requestExecutionMonitoring();
 
 
     /* Remember Contiki code, to verify it when reloaded */
@@ -157,7 +158,12 @@ public class MspBreakpoint implements Watchpoint {
   }
 
   public void unregisterBreakpoint() {
+    if (memoryMonitor == null) {
+      return;
+    }
     mspMote.getCPU().removeWatchPoint(address, memoryMonitor);
+    mspMote.releaseExecutionMonitoring();
+    memoryMonitor = null;
   }
 
   public Collection<Element> getConfigXML() {
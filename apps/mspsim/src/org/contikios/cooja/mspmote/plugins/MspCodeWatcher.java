@@ -269,6 +269,7 @@ public class MspCodeWatcher extends VisPlugin implements MotePlugin {
 
   public void startPlugin() {
     super.startPlugin();
+    mspMote.requestExecutionMonitoring();
     updateFileComboBox();
   }
 
@@ -330,6 +331,8 @@ public class MspCodeWatcher extends VisPlugin implements MotePlugin {
     simulation.deleteObserver(simObserver);
     simObserver = null;
 
+    mspMote.releaseExecutionMonitoring();
+
     /* TODO XXX Unregister breakpoints? */
   }
 
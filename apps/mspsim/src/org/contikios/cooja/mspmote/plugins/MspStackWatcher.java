@@ -207,6 +207,7 @@ public class MspStackWatcher extends VisPlugin implements MotePlugin {
         }
       };
       cpu.addRegisterWriteMonitor(MSP430.SP, registerMonitor);
+      mspMote.requestExecutionMonitoring();
     } catch (IOException e) {
       logger.warn("Stack monitoring failed: " + e.getMessage(), e);
       registerMonitor = null;
@@ -219,6 +220,7 @@ public class MspStackWatcher extends VisPlugin implements MotePlugin {
 	  userOverriddenStack = null;
     if (registerMonitor != null) {
       cpu.removeRegisterWriteMonitor(MSP430.SP, registerMonitor);
+      mspMote.releaseExecutionMonitoring();
       registerMonitor = null;
     }
   }
@@ -30,8 +30,15 @@
 
 package org.contikios.cooja;
 
+/**
+ * Radio packet backed by a byte array.
+ * <p>
+ * The array is not copied: one packet instance, and its data, is shared by
+ * the transmitter, all receivers and any radio loggers. The data must
+ * therefore not be modified once the packet has been transmitted.
+ */
 public class COOJARadioPacket implements RadioPacket {
-  private byte[] data;
+  private final byte[] data;
 
   public COOJARadioPacket(byte[] data) {
     this.data = data;
@@ -251,6 +251,7 @@ public class Cooja extends Observable {
     "PATH_CONTIKI", "PATH_COOJA_CORE_RELATIVE","PATH_APPS",
     "PATH_APPSEARCH",
     "PATH_CONTIKI_NG_BUILD_DIR",
+    "CONTIKI_BUILD_CACHE_DIR",
 
     "PATH_MAKE",
     "PATH_SHELL",
@@ -259,7 +260,6 @@ public class Cooja extends Observable {
     "PATH_AR", "AR_COMMAND_1", "AR_COMMAND_2",
     "PATH_OBJDUMP", "OBJDUMP_ARGS",
     "PATH_OBJCOPY",
-    "PATH_JAVAC",
 
     "CONTIKI_STANDARD_PROCESSES",
 
@@ -268,7 +268,6 @@ public class Cooja extends Observable {
     "CMD_GREP_SENSORS", "REGEXP_PARSE_SENSORS",
 
     "DEFAULT_PROJECTDIRS",
-    "CORECOMM_TEMPLATE_FILENAME",
 
     "PARSE_WITH_COMMAND",
 
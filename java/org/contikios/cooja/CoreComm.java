@@ -30,30 +30,33 @@ package org.contikios.cooja;
 
 import java.io.*;
 import java.lang.reflect.*;
-import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Vector;
 
 import org.contikios.cooja.MoteType.MoteTypeCreationException;
 import org.contikios.cooja.contikimote.ContikiMoteType;
-import org.contikios.cooja.dialogs.MessageContainer;
-import org.contikios.cooja.dialogs.MessageList;
 
 
 /**
  * The purpose of corecomm's is communicating with a compiled Contiki system
- * using Java Native Interface (JNI). Each implemented class (named
- * Lib[number]), loads a shared library which belongs to one mote type. The
- * reason for this somewhat strange design is that once loaded, a native library
- * cannot be unloaded in Java (in the current versions available). Therefore if
- * we wish to load several libraries, the names and associated native functions
- * must have unique names. And those names are defined via the calling class in
- * JNI. For example, the corresponding function for a native tick method in
- * class Lib1 will be named Java_org_contikios_cooja_corecomm_Lib1_tick. When creating
- * a new mote type, the main Contiki source file is generated with function
- * names compatible with the next available corecomm class. This also implies
- * that even if a mote type is deleted, a new one cannot be created using the
- * same corecomm class without restarting the JVM and thus the entire
- * simulation.
+ * using Java Native Interface (JNI). The implemented class
+ * (org.contikios.cooja.corecomm.Lib1) loads a shared library which belongs to
+ * one mote type. Its native methods are bound by JNI to functions named after
+ * the class, such as Java_org_contikios_cooja_corecomm_Lib1_tick, and every
+ * Contiki library is compiled with these function names.
+ * <p>
+ * Once loaded, a native library cannot be unloaded in Java, and JNI binds
+ * native methods once per class. Therefore each library is loaded by its own
+ * copy of the precompiled class, defined by a separate class loader. No Java
+ * source needs to be generated or compiled when a mote type is created.
+ * A new library file, named the same as an earlier loaded and removed file,
+ * still cannot be loaded without restarting the JVM.
+ * <p>
+ * Mote types may also load one private copy of their library per mote, see
+ * {@link #createCoreCommCopy(String, File, File)}. Each copy keeps its own
+ * native state.
  *
  * Each implemented CoreComm class needs read access to the following core
  * variables:
@@ -67,17 +70,29 @@ import org.contikios.cooja.dialogs.MessageList;
  * <li>getReferenceAbsAddr()
  * <li>getMemory(int start, int length, byte[] mem)
  * <li>setMemory(int start, int length, byte[] mem)
+ * </ul>
+ * and optionally:
+ * <ul>
+ * <li>getMemoryBuffer(int start, int length)
+ * </ul>
  *
  * @author Fredrik Osterlind
  */
 public abstract class CoreComm {
 
+  /**
+   * Name of the precompiled core communicator class.
+   * Contiki libraries must be compiled with this class name.
+   */
+  public final static String CLASS_NAME = "Lib1";
+
   // Static pointers to current libraries
   private final static Vector<CoreComm> coreComms = new Vector<CoreComm>();
 
   private final static Vector<File> coreCommFiles = new Vector<File>();
 
-  private static int fileCounter = 1;
+  // Scratch buffer for memory transfers with this library
+  private byte[] transferBuffer = new byte[0];
 
   /**
    * Has any library been loaded? Since libraries can't be unloaded the entire
@@ -110,222 +125,159 @@ public abstract class CoreComm {
   }
 
   /**
-   * Get the class name of next free core communicator class. If null is
-   * returned, no classes are available.
+   * Get the class name of the core communicator class. Contiki libraries are
+   * compiled with JNI function names matching this class.
    *
    * @return Class name
    */
   public static String getAvailableClassName() {
-    return "Lib" + fileCounter;
+    return CLASS_NAME;
   }
 
   /**
-   * Generates new source file by reading default source template and replacing
-   * the class name field.
+   * Defines a private copy of the precompiled core communicator class.
+   * <p>
+   * JNI binds native methods per class, so each copy may load its own
+   * library and use that library's native state.
    *
-   * @param className
-   *          Java class name (without extension)
-   * @throws MoteTypeCreationException
-   *           If error occurs
+   * @param className Java class name
+   * @return Loaded class
+   * @throws MoteTypeCreationException If error occurs
    */
-  public static void generateLibSourceFile(String className)
+  public static Class<?> loadIsolatedClassFile(String className)
       throws MoteTypeCreationException {
-    BufferedWriter sourceFileWriter = null;
-    BufferedReader templateFileReader = null;
-    String destFilename = null;
-
+    final String binaryName = "org.contikios.cooja.corecomm." + className;
     try {
-      Reader reader;
-      String mainTemplate = Cooja
-          .getExternalToolsSetting("CORECOMM_TEMPLATE_FILENAME");
-
-      if ((new File(mainTemplate)).exists()) {
-        reader = new FileReader(mainTemplate);
-      } else {
-        InputStream input = CoreComm.class
-            .getResourceAsStream('/' + mainTemplate);
-        if (input == null) {
-          throw new FileNotFoundException(mainTemplate + " not found");
-        }
-        reader = new InputStreamReader(input);
-      }
-
-      templateFileReader = new BufferedReader(reader);
-      destFilename = className + ".java";
+      return new LibraryClassLoader(binaryName).loadClass(binaryName);
+    } catch (ClassNotFoundException e) {
+      throw (MoteTypeCreationException) new MoteTypeCreationException(
+          "Could not load corecomm class: " + className).initCause(e);
+    }
+  }
 
-      File dir = new File("org/contikios/cooja/corecomm");
-      if (!dir.exists()) {
-        dir.mkdirs();
-      }
+  /**
+   * Class loader defining its own copy of a core communicator class, read from
+   * the class path of Cooja. All other classes are delegated to the parent.
+   */
+  private static class LibraryClassLoader extends ClassLoader {
+    private final String binaryName;
 
-      sourceFileWriter = new BufferedWriter(new OutputStreamWriter(
-          new FileOutputStream("org/contikios/cooja/corecomm/" + destFilename)));
+    public LibraryClassLoader(String binaryName) {
+      super(CoreComm.class.getClassLoader());
+      this.binaryName = binaryName;
+    }
 
-      // Replace special fields in template
-      String line;
-      while ((line = templateFileReader.readLine()) != null) {
-        line = line.replaceFirst("\\[CLASSNAME\\]", className);
-        sourceFileWriter.write(line + "\n");
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException {
+      if (!name.equals(binaryName)) {
+        return super.loadClass(name, resolve);
       }
-
-      sourceFileWriter.close();
-      templateFileReader.close();
-    } catch (Exception e) {
-      try {
-        if (sourceFileWriter != null) {
-          sourceFileWriter.close();
+      synchronized (getClassLoadingLock(name)) {
+        /* Define class here, do not delegate to parent class loader */
+        Class<?> c = findLoadedClass(name);
+        if (c == null) {
+          c = findClass(name);
         }
-        if (templateFileReader != null) {
-          templateFileReader.close();
+        if (resolve) {
+          resolveClass(c);
         }
-      } catch (Exception e2) {
+        return c;
       }
-
-      throw (MoteTypeCreationException) new MoteTypeCreationException(
-          "Could not generate corecomm source file: " + className + ".java")
-          .initCause(e);
     }
 
-    File genFile = new File("org/contikios/cooja/corecomm/" + destFilename);
-    if (genFile.exists()) {
-      return;
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      if (!name.equals(binaryName)) {
+        throw new ClassNotFoundException(name);
+      }
+      InputStream input = CoreComm.class.getResourceAsStream(
+          '/' + name.replace('.', '/') + ".class");
+      if (input == null) {
+        throw new ClassNotFoundException(name);
+      }
+      try {
+        ByteArrayOutputStream classData = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = input.read(buf)) >= 0) {
+          classData.write(buf, 0, n);
+        }
+        input.close();
+        return defineClass(name, classData.toByteArray(), 0, classData.size());
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
     }
-
-    throw new MoteTypeCreationException(
-        "Could not generate corecomm source file: " + className + ".java");
   }
 
   /**
-   * Compiles Java class.
+   * Create and return an instance of the core communicator identified by
+   * className. This core communicator will load the native library libFile.
    *
    * @param className
-   *          Java class name (without extension)
-   * @throws MoteTypeCreationException
-   *           If Java class compilation error occurs
+   *          Class name of core communicator
+   * @param libFile
+   *          Native library file
+   * @return Core Communicator
    */
-  public static void compileSourceFile(String className)
+  public static CoreComm createCoreComm(String className, File libFile)
       throws MoteTypeCreationException {
-      /* Try to create a message list with support for GUI - will give not UI if headless */
-    MessageList compilationOutput = MessageContainer.createMessageList(true);
-    OutputStream compilationStandardStream = compilationOutput
-        .getInputStream(MessageList.NORMAL);
-    OutputStream compilationErrorStream = compilationOutput
-        .getInputStream(MessageList.ERROR);
-
-    File classFile = new File("org/contikios/cooja/corecomm/" + className + ".class");
-
-    try {
-      int b;
-      String[] cmd = new String[] {
-          Cooja.getExternalToolsSetting("PATH_JAVAC"),
-          "-cp",
-          "." + File.pathSeparator +
-          Cooja.getExternalToolsSetting("PATH_CONTIKI")
-          + "/tools/cooja/dist/cooja.jar",
-          "org/contikios/cooja/corecomm/" + className + ".java" };
-
-      Process p = Runtime.getRuntime().exec(cmd, null, null);
-      InputStream outputStream = p.getInputStream();
-      InputStream errorStream = p.getErrorStream();
-      while ((b = outputStream.read()) >= 0) {
-        compilationStandardStream.write(b);
-      }
-      while ((b = errorStream.read()) >= 0) {
-        compilationErrorStream.write(b);
-      }
-      p.waitFor();
-
-      if (classFile.exists()) {
-        return;
-      }
-
-    } catch (IOException e) {
-      MoteTypeCreationException exception = (MoteTypeCreationException) new MoteTypeCreationException(
-          "Could not compile corecomm source file: " + className + ".java")
-          .initCause(e);
-      exception.setCompilationOutput(compilationOutput);
-      throw exception;
-    } catch (InterruptedException e) {
-      MoteTypeCreationException exception = (MoteTypeCreationException) new MoteTypeCreationException(
-          "Could not compile corecomm source file: " + className + ".java")
-          .initCause(e);
-      exception.setCompilationOutput(compilationOutput);
-      throw exception;
-    }
-
-    MoteTypeCreationException exception = new MoteTypeCreationException(
-        "Could not compile corecomm source file: " + className + ".java");
-    exception.setCompilationOutput(compilationOutput);
-    throw exception;
+    CoreComm newCoreComm = newCoreComm(className, libFile);
+    coreComms.add(newCoreComm);
+    coreCommFiles.add(libFile);
+    return newCoreComm;
   }
 
-  /**
-   * Loads given Java class file from disk.
-   *
-   * @param className Java class name
-   * @return Loaded class
-   * @throws MoteTypeCreationException If error occurs
-   */
-  public static Class<?> loadClassFile(String className)
+  private static CoreComm newCoreComm(String className, File libFile)
       throws MoteTypeCreationException {
-    Class<?> loadedClass = null;
-    try {
-      ClassLoader urlClassLoader = new URLClassLoader(
-          new URL[] { new File(".").toURI().toURL() },
-          CoreComm.class.getClassLoader());
-      loadedClass = urlClassLoader.loadClass("org.contikios.cooja.corecomm."
-          + className);
+    Class newCoreCommClass = loadIsolatedClassFile(className);
 
-    } catch (MalformedURLException e) {
-      throw (MoteTypeCreationException) new MoteTypeCreationException(
-          "Could not load corecomm class file: " + className + ".class")
-          .initCause(e);
-    } catch (ClassNotFoundException e) {
+    try {
+      Constructor constr = newCoreCommClass
+          .getConstructor(new Class[] { File.class });
+      return (CoreComm) constr.newInstance(new Object[] { libFile });
+    } catch (Exception e) {
       throw (MoteTypeCreationException) new MoteTypeCreationException(
-          "Could not load corecomm class file: " + className + ".class")
-          .initCause(e);
-    }
-    if (loadedClass == null) {
-      throw new MoteTypeCreationException(
-          "Could not load corecomm class file: " + className + ".class");
+          "Error when creating corecomm instance: " + className).initCause(e);
     }
-
-    return loadedClass;
   }
 
   /**
-   * Create and return an instance of the core communicator identified by
-   * className. This core communicator will load the native library libFile.
+   * Create and return a core communicator that loads a private copy of an
+   * already loaded native library.
+   * <p>
+   * Copies are not recorded as loaded library files. Once loaded, the copy
+   * is removed, except on Windows where loaded libraries cannot be removed
+   * until the JVM exits. Copy file names must therefore be unique within the
+   * JVM.
    *
    * @param className
    *          Class name of core communicator
    * @param libFile
    *          Native library file
+   * @param copyFile
+   *          Destination of library copy, overwritten if existing
    * @return Core Communicator
    */
-  public static CoreComm createCoreComm(String className, File libFile)
+  public static CoreComm createCoreCommCopy(String className, File libFile, File copyFile)
       throws MoteTypeCreationException {
-    generateLibSourceFile(className);
-
-    compileSourceFile(className);
-
-    Class newCoreCommClass = loadClassFile(className);
-
     try {
-      Constructor constr = newCoreCommClass
-          .getConstructor(new Class[] { File.class });
-      CoreComm newCoreComm = (CoreComm) constr
-          .newInstance(new Object[] { libFile });
-
-      coreComms.add(newCoreComm);
-      coreCommFiles.add(libFile);
-      fileCounter++;
-
-      return newCoreComm;
-    } catch (Exception e) {
+      Files.copy(libFile.toPath(), copyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
       throw (MoteTypeCreationException) new MoteTypeCreationException(
-          "Error when creating corecomm instance: " + className).initCause(e);
+          "Could not copy library file: " + libFile + " -> " + copyFile).initCause(e);
+    }
+
+    CoreComm newCoreComm;
+    try {
+      newCoreComm = newCoreComm(className, copyFile);
+    } finally {
+      if (!copyFile.delete()) {
+        copyFile.deleteOnExit();
+      }
     }
+    return newCoreComm;
   }
 
   /**
@@ -366,4 +318,33 @@ public abstract class CoreComm {
    */
   public abstract void setMemory(int relAddr, int length, byte[] mem);
 
+  /**
+   * Returns a direct byte buffer over the memory segment identified by start
+   * and length. The buffer accesses the library's memory in place.
+   * <p>
+   * Libraries not implementing this function return null.
+   *
+   * @param relAddr Relative memory start address
+   * @param length Length of segment
+   * @return Direct byte buffer, or null if not supported by library
+   */
+  public ByteBuffer getMemoryBuffer(int relAddr, int length) {
+    return null;
+  }
+
+  /**
+   * Returns a scratch buffer for copying memory to and from this library.
+   * A library executes one mote at a time, so all its transfers may share
+   * the buffer, while private library copies each have their own.
+   *
+   * @param size Minimum size of buffer
+   * @return Buffer, at least size bytes long
+   */
+  public byte[] getTransferBuffer(int size) {
+    if (transferBuffer.length < size) {
+      transferBuffer = new byte[size];
+    }
+    return transferBuffer;
+  }
+
 }
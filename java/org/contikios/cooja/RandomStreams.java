@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Independent random streams of a simulation, derived from its seed.
+ * <p>
+ * A stream is identified by a name, and optionally a mote. Its sequence
+ * only depends on the simulation seed and its identity, not on other
+ * streams. Adding a mote or another random consumer hence does not change
+ * the random sequences of the others, and consumers of different streams
+ * may draw numbers in any order.
+ * <p>
+ * Mote streams are identified by the order in which motes were added to
+ * the simulation, not by mote IDs, which may change or be reused. They are
+ * dropped when their mote is removed.
+ * <p>
+ * Streams are reseeded in place when the simulation seed changes, so they
+ * may be kept by their consumers.
+ *
+ * @see Simulation#getRandomStreams()
+ */
+public class RandomStreams {
+  private long seed;
+  private final HashMap<String, Random> streams = new HashMap<String, Random>();
+
+  /* Streams of one mote */
+  private static class MoteStreams {
+    final long key; /* Order in which the mote was added */
+    final HashMap<String, Random> streams = new HashMap<String, Random>();
+
+    MoteStreams(long key) {
+      this.key = key;
+    }
+  }
+  private final IdentityHashMap<Mote, MoteStreams> moteStreams = new IdentityHashMap<Mote, MoteStreams>();
+  private long nextMoteKey = 0;
+
+  /**
+   * @param seed Simulation seed
+   */
+  public RandomStreams(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Reseeds all streams.
+   *
+   * @param seed Simulation seed
+   */
+  public synchronized void setSeed(long seed) {
+    this.seed = seed;
+    for (String key: streams.keySet()) {
+      streams.get(key).setSeed(deriveSeed(seed, key));
+    }
+    for (MoteStreams m: moteStreams.values()) {
+      for (String name: m.streams.keySet()) {
+        m.streams.get(name).setSeed(deriveSeed(seed, moteStreamKey(m, name)));
+      }
+    }
+  }
+
+  /**
+   * Assigns the mote its stream identity. Called when the mote is added
+   * to the simulation, in the order motes are added.
+   *
+   * @param mote Mote
+   */
+  public synchronized void addMote(Mote mote) {
+    getMoteStreams(mote);
+  }
+
+  /**
+   * Drops all streams of a mote.
+   *
+   * @param mote Removed mote
+   */
+  public synchronized void removeMote(Mote mote) {
+    moteStreams.remove(mote);
+  }
+
+  /**
+   * @param name Stream name, for instance the name of a radio medium
+   * @return Random stream
+   */
+  public synchronized Random getStream(String name) {
+    Random stream = streams.get(name);
+    if (stream == null) {
+      stream = new Random(deriveSeed(seed, name));
+      streams.put(name, stream);
+    }
+    return stream;
+  }
+
+  /**
+   * Returns a stream of a mote. Motes are identified by the order in which
+   * they were added to the simulation.
+   *
+   * @param mote Mote
+   * @param name Stream name, for instance the name of a mote interface
+   * @return Random stream
+   */
+  public synchronized Random getMoteStream(Mote mote, String name) {
+    MoteStreams m = getMoteStreams(mote);
+    Random stream = m.streams.get(name);
+    if (stream == null) {
+      stream = new Random(deriveSeed(seed, moteStreamKey(m, name)));
+      m.streams.put(name, stream);
+    }
+    return stream;
+  }
+
+  private MoteStreams getMoteStreams(Mote mote) {
+    MoteStreams m = moteStreams.get(mote);
+    if (m == null) {
+      m = new MoteStreams(nextMoteKey++);
+      moteStreams.put(mote, m);
+    }
+    return m;
+  }
+
+  private static String moteStreamKey(MoteStreams m, String name) {
+    return name + "@" + m.key;
+  }
+
+  /* Mixes the stream identity into the seed */
+  private static long deriveSeed(long seed, String key) {
+    /* FNV-1a */
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return new SplittableRandom(new SplittableRandom(seed).nextLong() ^ hash).nextLong();
+  }
+}
@@ -94,7 +94,10 @@ public class Simulation extends Observable implements Runnable {
 
   private long maxMoteStartupDelay = 1000*MILLISECOND;
 
+  private boolean adaptiveExecutionQuanta = false;
+
   private SafeRandom randomGenerator;
+  private RandomStreams randomStreams;
 
   private boolean hasMillisecondObservers = false;
   private MillisecondObservable millisecondObservable = new MillisecondObservable();
@@ -324,6 +327,7 @@ public class Simulation extends Observable implements Runnable {
   public Simulation(Cooja cooja) {
     this.cooja = cooja;
     randomGenerator = new SafeRandom(this);
+    randomStreams = new RandomStreams(randomSeed);
   }
 
   /**
@@ -419,6 +423,7 @@ public class Simulation extends Observable implements Runnable {
   public void setRandomSeed(long randomSeed) {
     this.randomSeed = randomSeed;
     randomGenerator.setSeed(randomSeed);
+    randomStreams.setSeed(randomSeed);
     logger.info("Simulation random seed: " + randomSeed);
   }
 
@@ -436,10 +441,24 @@ public class Simulation extends Observable implements Runnable {
     return randomSeedGenerated;
   }
 
+  /**
+   * Returns the shared random generator. Its sequence depends on the order
+   * of all draws in the simulation: prefer streams from
+   * {@link #getRandomStreams()} for new random consumers.
+   *
+   * @return Random generator
+   */
   public Random getRandomGenerator() {
     return randomGenerator;
   }
 
+  /**
+   * @return Independent random streams derived from the random seed
+   */
+  public RandomStreams getRandomStreams() {
+    return randomStreams;
+  }
+
   /**
    * @return Maximum mote startup delay
    */
@@ -454,6 +473,29 @@ public class Simulation extends Observable implements Runnable {
     this.maxMoteStartupDelay = Math.max(0, maxMoteStartupDelay);
   }
 
+  /**
+   * @return True if emulated motes may use adaptive execution quanta
+   * @see #setAdaptiveExecutionQuanta(boolean)
+   */
+  public boolean getAdaptiveExecutionQuanta() {
+    return adaptiveExecutionQuanta;
+  }
+
+  /**
+   * Allows emulated motes to execute in quanta longer than one microsecond
+   * while their radio is powered down and no breakpoints are set.
+   * <p>
+   * Output produced within a longer quantum, such as log, serial and LED
+   * output, is seen at the quantum start time, up to one millisecond early.
+   * Disabled by default; enable only when output timing at microsecond
+   * resolution does not matter.
+   *
+   * @param adaptive True to allow adaptive execution quanta
+   */
+  public void setAdaptiveExecutionQuanta(boolean adaptive) {
+    this.adaptiveExecutionQuanta = adaptive;
+  }
+
   private SimEventCentral eventCentral = new SimEventCentral(this);
   public SimEventCentral getEventCentral() {
     return eventCentral;
@@ -496,6 +538,13 @@ public class Simulation extends Observable implements Runnable {
     element.setText(Long.toString(maxMoteStartupDelay));
     config.add(element);
 
+    // Adaptive execution quanta
+    if (adaptiveExecutionQuanta) {
+      element = new Element("adaptivequanta");
+      element.setText("true");
+      config.add(element);
+    }
+
     // Radio Medium
     element = new Element("radiomedium");
     element.setText(currentRadioMedium.getClass().getName());
@@ -611,6 +660,11 @@ public class Simulation extends Observable implements Runnable {
         maxMoteStartupDelay = Integer.parseInt(element.getText());
       }
 
+      // Adaptive execution quanta
+      if (element.getName().equals("adaptivequanta")) {
+        adaptiveExecutionQuanta = Boolean.parseBoolean(element.getText());
+      }
+
       // Radio medium
       if (element.getName().equals("radiomedium")) {
         String radioMediumClassName = element.getText().trim();
@@ -773,6 +827,7 @@ public class Simulation extends Observable implements Runnable {
         motes.remove(mote);
         motesUninit.remove(mote);
         currentRadioMedium.unregisterMote(mote, Simulation.this);
+        randomStreams.removeMote(mote);
 
         /* Dispose mote interface resources */
         mote.removed();
@@ -838,7 +893,7 @@ public class Simulation extends Observable implements Runnable {
           if (maxMoteStartupDelay > 0) {
             mote.getInterfaces().getClock().setDrift(
                 - getSimulationTime()
-                - randomGenerator.nextInt((int)maxMoteStartupDelay)
+                - randomStreams.getMoteStream(mote, "startup").nextInt((int)maxMoteStartupDelay)
             );
           } else {
             mote.getInterfaces().getClock().setDrift(-getSimulationTime());
@@ -860,6 +915,9 @@ public class Simulation extends Observable implements Runnable {
       }
     };
 
+    /* Identify the mote's random streams by the order motes are added */
+    randomStreams.addMote(mote);
+
     //Add to list of uninitialized motes
     motesUninit.add(mote);
 
@@ -1078,6 +1136,17 @@ public class Simulation extends Observable implements Runnable {
     return currentSimulationTime;
   }
 
+  /**
+   * Returns the time of the earliest pending event.
+   * Must only be called from the simulation thread.
+   *
+   * @return Time of next event (microseconds), or -1 if no event is pending
+   */
+  public long getNextEventTime() {
+    TimeEvent ev = eventQueue.peekFirst();
+    return ev == null ? -1 : ev.getTime();
+  }
+
   /**
    * Returns current simulation time rounded to milliseconds.
    *
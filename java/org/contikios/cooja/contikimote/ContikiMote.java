@@ -30,15 +30,19 @@
 
 package org.contikios.cooja.contikimote;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
+import org.contikios.cooja.CoreComm;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.MoteInterface;
 import org.contikios.cooja.MoteInterfaceHandler;
 import org.contikios.cooja.MoteType;
+import org.contikios.cooja.MoteType.MoteTypeCreationException;
 import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.mote.memory.MemoryInterface;
@@ -57,6 +61,9 @@ import org.contikios.cooja.motes.AbstractWakeupMote;
  * memory to the core, lets the Contiki system handle one event,
  * fetches the updated memory and finally polls all interfaces again.
  *
+ * If the mote type loads a private library per mote, the mote executes in,
+ * and exchanges memory only with, its own library copy.
+ *
  * @author      Fredrik Osterlind
  */
 public class ContikiMote extends AbstractWakeupMote implements Mote {
@@ -66,6 +73,19 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
   private SectionMoteMemory myMemory = null;
   private MoteInterfaceHandler myInterfaceHandler = null;
 
+  /* Private library, or null if sharing the mote type's library */
+  private CoreComm myCoreComm = null;
+  private long myCoreOffset;
+
+  /* Memory accessed in place in the private library, never synchronized */
+  private boolean myMemoryResident = false;
+
+  /* Buffers for running until idle */
+  private ContikiMoteType.IdleCheck myIdleCheck = null;
+
+  /* Journal recording memory after every tick, or null */
+  private MemoryJournal journal = null;
+
   /**
    * Creates a new mote of given type.
    * Both the initial mote memory and the interface handler
@@ -77,12 +97,35 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
   public ContikiMote(ContikiMoteType moteType, Simulation sim) {
     setSimulation(sim);
     this.myType = moteType;
-    this.myMemory = moteType.createInitialMemory();
+    if (moteType.isPerMoteLibrary()) {
+      try {
+        myCoreComm = moteType.createMoteCoreComm();
+      } catch (MoteTypeCreationException e) {
+        throw (RuntimeException) new RuntimeException(
+            "Error when loading mote library: " + e.getMessage()).initCause(e);
+      }
+      myCoreOffset = moteType.getLibraryOffset(myCoreComm);
+    }
+    this.myMemory = createInitialMemory();
+    this.myIdleCheck = moteType.createIdleCheck();
     this.myInterfaceHandler = new MoteInterfaceHandler(this, moteType.getMoteInterfaceClasses());
 
     requestImmediateWakeup();
   }
 
+  private SectionMoteMemory createInitialMemory() {
+    if (myCoreComm != null) {
+      SectionMoteMemory memory = myType.createInitialMemory(myCoreComm, myCoreOffset);
+      myMemoryResident = myType.isResident(memory);
+      if (!myMemoryResident) {
+        logger.warn(myType.getContikiFirmwareFile().getName()
+            + ": library does not export memory buffers, mote memory is copied every tick");
+      }
+      return memory;
+    }
+    return myType.createInitialMemory();
+  }
+
   @Override
   public int getID() {
     return myInterfaceHandler.getMoteID().getMoteID();
@@ -104,6 +147,27 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
 
   public void setMemory(SectionMoteMemory memory) {
     myMemory = memory;
+    myMemoryResident = myCoreComm != null && myType.isResident(memory);
+  }
+
+  /**
+   * Sets the journal recording the memory of this mote after every tick.
+   * Any previous journal is closed.
+   *
+   * @param journal Journal, or null to stop recording
+   */
+  public void setMemoryJournal(MemoryJournal journal) {
+    if (this.journal != null && this.journal != journal) {
+      this.journal.close();
+    }
+    this.journal = journal;
+  }
+
+  /**
+   * @return Journal recording the memory of this mote, or null
+   */
+  public MemoryJournal getMemoryJournal() {
+    return journal;
   }
 
   @Override
@@ -138,14 +202,43 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
       return;
     }
 
-    /* Copy mote memory to Contiki */
-    myType.setCoreMemory(myMemory);
+    if (myCoreComm != null) {
+      /* Private library: Contiki state stays resident */
+      if (!myMemoryResident) {
+        myType.setCoreMemory(myCoreComm, myCoreOffset, myMemory);
+      }
+      if (myType.isRunUntilIdle()) {
+        myType.tickUntilIdle(myCoreComm, myIdleCheck);
+      } else {
+        myType.tick(myCoreComm);
+      }
+      if (!myMemoryResident) {
+        myType.getCoreMemory(myCoreComm, myCoreOffset, myMemory);
+      }
+    } else {
+      /* Copy mote memory to Contiki */
+      myType.setCoreMemory(myMemory);
+
+      if (myType.isRunUntilIdle()) {
+        /* Handle all runnable Contiki events */
+        myType.tickUntilIdle(myIdleCheck);
+      } else {
+        /* Handle a single Contiki events */
+        myType.tick();
+      }
 
-    /* Handle a single Contiki events */
-    myType.tick();
+      /* Copy mote memory from Contiki */
+      myType.getCoreMemory(myMemory);
+    }
 
-    /* Copy mote memory from Contiki */
-    myType.getCoreMemory(myMemory);
+    if (journal != null) {
+      try {
+        journal.record(simTime, myMemory);
+      } catch (IOException e) {
+        logger.warn("Stopped memory journal of " + this + ": " + e.getMessage());
+        setMemoryJournal(null);
+      }
+    }
 
     /* Poll mote interfaces */
     myMemory.pollForMemoryChanges();
@@ -176,13 +269,20 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
       }
     }
 
+    if (journal != null) {
+      element = new Element("memoryjournal");
+      File file = getSimulation().getCooja().createPortablePath(journal.getFile());
+      element.setText(file.getPath().replace('\\', '/'));
+      config.add(element);
+    }
+
     return config;
   }
 
   @Override
   public boolean setConfigXML(Simulation simulation, Collection<Element> configXML, boolean visAvailable) {
     setSimulation(simulation);
-    myMemory = myType.createInitialMemory();
+    myMemory = createInitialMemory();
     myInterfaceHandler = new MoteInterfaceHandler(this, myType.getMoteInterfaceClasses());
 
     for (Element element: configXML) {
@@ -190,6 +290,15 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
 
       if (name.equals("motetype_identifier")) {
         /* Ignored: handled by simulation */
+      } else if (name.equals("memoryjournal")) {
+        File file = simulation.getCooja().restorePortablePath(new File(element.getText()));
+        /* Keep the journal recorded before the simulation was reloaded */
+        file = MemoryJournal.nextFile(file);
+        try {
+          setMemoryJournal(new MemoryJournal(file));
+        } catch (IOException e) {
+          logger.warn("Could not create memory journal " + file + ": " + e.getMessage());
+        }
       } else if (name.equals("interface_config")) {
         String intfClass = element.getText().trim();
 
@@ -219,6 +328,12 @@ public class ContikiMote extends AbstractWakeupMote implements Mote {
     return true;
   }
 
+  @Override
+  public void removed() {
+    super.removed();
+    setMemoryJournal(null);
+  }
+
   @Override
   public String toString() {
     return "Contiki " + getID();
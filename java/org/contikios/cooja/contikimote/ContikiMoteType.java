@@ -37,6 +37,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -69,9 +73,12 @@ import org.contikios.cooja.dialogs.ContikiMoteCompileDialog;
 import org.contikios.cooja.dialogs.MessageList;
 import org.contikios.cooja.dialogs.MessageContainer;
 import org.contikios.cooja.mote.memory.ArrayMemory;
+import org.contikios.cooja.mote.memory.ByteBufferMemory;
+import org.contikios.cooja.mote.memory.MemoryBuffer;
 import org.contikios.cooja.mote.memory.MemoryInterface;
 import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
 import org.contikios.cooja.mote.memory.MemoryLayout;
+import org.contikios.cooja.mote.memory.PagedMemory;
 import org.contikios.cooja.mote.memory.UnknownVariableException;
 import org.contikios.cooja.mote.memory.VarMemory;
 import org.contikios.cooja.util.StringUtils;
@@ -92,6 +99,11 @@ import org.contikios.cooja.util.StringUtils;
  * Contiki system in order to create the initial memory. When a new mote is
  * created the createInitialMemory() method should be called to get this initial
  * memory for the mote.
+ * <p>
+ * Optionally, each mote of this type may load a private copy of the library
+ * (see {@link #setPerMoteLibrary(boolean)}). The native state of such motes
+ * stays resident in their own library instead of being swapped in and out of
+ * the shared one, at the cost of one loaded library per mote.
  *
  * @author Fredrik Osterlind
  */
@@ -124,6 +136,14 @@ public class ContikiMoteType implements MoteType {
   final static public File tempOutputDirectory = new File(
       Cooja.getExternalToolsSetting("PATH_CONTIKI_NG_BUILD_DIR", "build/cooja"));
 
+  /**
+   * Cache directory for sections and symbols parsed from Contiki libraries
+   */
+  final static public File SYMBOL_CACHE_DIRECTORY = new File(tempOutputDirectory, "symbols");
+
+  /* Sections stored in symbol cache files, in order */
+  private final static String[] SYMBOL_CACHE_SECTIONS = { "data", "bss", "common" };
+
   /**
    * Communication stacks in Contiki.
    */
@@ -204,6 +224,28 @@ public class ContikiMoteType implements MoteType {
 
   private NetworkStack netStack = NetworkStack.DEFAULT;
 
+  private boolean perMoteLibrary = false;
+
+  private boolean runUntilIdle = false;
+
+  private boolean copyOnWriteMemory = false;
+
+  /* Initial memory with pages shared by all motes, if copy-on-write */
+  private SectionMoteMemory sharedInitialMemory = null;
+
+  /**
+   * Maximum number of Contiki events handled in one tick when running until
+   * idle.
+   */
+  public final static int MAX_EVENTS_PER_TICK = 100;
+
+  /* Variables checked between events when running until idle */
+  private IdleCheckVariable processRunValue = null;
+  private IdleCheckVariable[] idleCheckVariables = null;
+
+  /* Number of private library copies loaded, naming each copy uniquely */
+  private static int libraryCopies = 0;
+
   // Type specific class configuration
   private ProjectConfig myConfig = null;
 
@@ -215,6 +257,9 @@ public class ContikiMoteType implements MoteType {
   /** Offset between native (cooja) and contiki address space */
   long offset;
 
+  /** Relative address of Contiki's referenceVar */
+  private int referenceVarAddr;
+
   /**
    * Creates a new uninitialized Cooja mote type. This mote type needs to load
    * a library file and parse a map file before it can be used.
@@ -315,45 +360,65 @@ public class ContikiMoteType implements MoteType {
         envOneDimension[i] = env[i][0] + "=" + env[i][1];
       }
 
-      /* Compile Contiki (may consist of several commands) */
-      if (getCompileCommands() == null) {
-        throw new MoteTypeCreationException("No compile commands specified");
+      /* Reuse library compiled earlier from identical sources */
+      File cacheDir = FirmwareCache.getCacheDirectory();
+      String cacheKey = null;
+      boolean cached = false;
+      if (cacheDir != null) {
+        cacheKey = FirmwareCache.createKey(this, env);
+        if (cacheKey != null) {
+          cached = FirmwareCache.restore(cacheDir, cacheKey, getContikiSourceFile().getParentFile(), libFile, mapFile);
+        }
+        if (cached) {
+          logger.info("Using cached firmware " + cacheKey + " for " + getIdentifier());
+        }
       }
-      final MessageList compilationOutput = MessageContainer.createMessageList(visAvailable);
-      String[] arr = getCompileCommands().split("\n");
-      for (String cmd : arr) {
-        if (cmd.trim().isEmpty()) {
-          continue;
+
+      if (!cached) {
+        /* Compile Contiki (may consist of several commands) */
+        if (getCompileCommands() == null) {
+          throw new MoteTypeCreationException("No compile commands specified");
         }
+        final MessageList compilationOutput = MessageContainer.createMessageList(visAvailable);
+        String[] arr = getCompileCommands().split("\n");
+        for (String cmd : arr) {
+          if (cmd.trim().isEmpty()) {
+            continue;
+          }
 
-        try {
-          CompileContiki.compile(
-                  cmd,
-                  envOneDimension,
-                  null /* Do not observe output firmware file */,
-                  getContikiSourceFile().getParentFile(),
-                  null,
-                  null,
-                  compilationOutput,
-                  true
-          );
-        } catch (Exception e) {
-          MoteTypeCreationException newException
-                  = new MoteTypeCreationException("Mote type creation failed: " + e.getMessage());
-          newException = (MoteTypeCreationException) newException.initCause(e);
-          newException.setCompilationOutput(compilationOutput);
-
-          /* Print last 10 compilation errors to console */
-          MessageContainer[] messages = compilationOutput.getMessages();
-          for (int i = messages.length - 10; i < messages.length; i++) {
-            if (i < 0) {
-              continue;
+          try {
+            CompileContiki.compile(
+                    cmd,
+                    envOneDimension,
+                    null /* Do not observe output firmware file */,
+                    getContikiSourceFile().getParentFile(),
+                    null,
+                    null,
+                    compilationOutput,
+                    true
+            );
+          } catch (Exception e) {
+            MoteTypeCreationException newException
+                    = new MoteTypeCreationException("Mote type creation failed: " + e.getMessage());
+            newException = (MoteTypeCreationException) newException.initCause(e);
+            newException.setCompilationOutput(compilationOutput);
+
+            /* Print last 10 compilation errors to console */
+            MessageContainer[] messages = compilationOutput.getMessages();
+            for (int i = messages.length - 10; i < messages.length; i++) {
+              if (i < 0) {
+                continue;
+              }
+              logger.fatal(">> " + messages[i]);
             }
-            logger.fatal(">> " + messages[i]);
+
+            logger.fatal("Compilation error: " + e.getMessage());
+            throw newException;
           }
+        }
 
-          logger.fatal("Compilation error: " + e.getMessage());
-          throw newException;
+        if (cacheKey != null && libFile.exists()) {
+          FirmwareCache.store(cacheDir, cacheKey, getContikiSourceFile().getParentFile(), libFile, mapFile);
         }
       }
 
@@ -417,7 +482,16 @@ public class ContikiMoteType implements MoteType {
     SectionParser readonlySecParser = null;
 
     HashMap<String, Symbol> variables = new HashMap<>();
-    if (useCommand) {
+
+    /* Reuse sections and symbols parsed earlier from identical firmware */
+    File cacheFile = getSymbolCacheFile(useCommand);
+    CachedSectionParser[] cachedParsers = loadSymbolCache(cacheFile);
+    if (cachedParsers != null) {
+      logger.info(getContikiFirmwareFile().getName() + ": using cached symbols " + cacheFile);
+      dataSecParser = cachedParsers[0];
+      bssSecParser = cachedParsers[1];
+      commonSecParser = cachedParsers[2];
+    } else if (useCommand) {
       /* Parse command output */
       String[] output = loadCommandData(getContikiFirmwareFile());
       if (output == null) {
@@ -474,6 +548,19 @@ public class ContikiMoteType implements MoteType {
 
     }
 
+    if (cachedParsers == null) {
+      /* Parse once, and keep results for later loads of this firmware */
+      cachedParsers = new CachedSectionParser[] {
+          new CachedSectionParser(dataSecParser),
+          new CachedSectionParser(bssSecParser),
+          new CachedSectionParser(commonSecParser)
+      };
+      dataSecParser = cachedParsers[0];
+      bssSecParser = cachedParsers[1];
+      commonSecParser = cachedParsers[2];
+      saveSymbolCache(cacheFile, cachedParsers);
+    }
+
     /* We first need the value of Contiki's referenceVar, which tells us the
      * memory offset between Contiki's variable and the relative addresses that
      * were calculated directly from the library file.
@@ -488,8 +575,8 @@ public class ContikiMoteType implements MoteType {
       tmp.addMemorySection("tmp.bss", bssSecParser.parse(0));
 
       try {
-        int referenceVar = (int) varMem.getVariable("referenceVar").addr;
-        myCoreComm.setReferenceAddress(referenceVar);
+        referenceVarAddr = (int) varMem.getVariable("referenceVar").addr;
+        myCoreComm.setReferenceAddress(referenceVarAddr);
       } catch (UnknownVariableException e) {
         throw new MoteTypeCreationException("Error setting reference variable: " + e.getMessage(), e);
       } catch (RuntimeException e) {
@@ -517,6 +604,106 @@ public class ContikiMoteType implements MoteType {
     }
 
     getCoreMemory(initialMemory);
+
+    /* Variables deciding whether more events may be handled in the same tick */
+    VarMemory initialVarMem = new VarMemory(initialMemory);
+    int intSize = initialMemory.getLayout().intSize;
+    processRunValue = IdleCheckVariable.create(initialVarMem, offset, "simProcessRunValue", intSize, false);
+    ArrayList<IdleCheckVariable> checks = new ArrayList<>();
+    /* Cleared by the mote interfaces after every tick */
+    String[] setVars = { "simLoggedFlag", "simBeeped" };
+    for (String var : setVars) {
+      IdleCheckVariable check = IdleCheckVariable.create(initialVarMem, offset, var, 1, false);
+      if (check != null) {
+        checks.add(check);
+      }
+    }
+    /* Stay set across ticks, e.g. during a transmission or while an rtimer is
+     * scheduled, so only a change needs the mote interfaces */
+    String[] changeVars = { "simOutSize", "simRtimerPending", "simRtimerNextExpirationTime",
+        "simRadioHWOn", "simLedsValue" };
+    int[] changeSizes = { intSize, intSize, 8, 1, 1 };
+    for (int i = 0; i < changeVars.length; i++) {
+      IdleCheckVariable check = IdleCheckVariable.create(initialVarMem, offset, changeVars[i], changeSizes[i], true);
+      if (check != null) {
+        checks.add(check);
+      }
+    }
+    idleCheckVariables = checks.toArray(new IdleCheckVariable[0]);
+  }
+
+  /**
+   * Contiki variable read directly from the library between events.
+   */
+  private static class IdleCheckVariable {
+    final int relAddr;
+    final int size;
+    final boolean exitOnChange;
+
+    private IdleCheckVariable(int relAddr, int size, boolean exitOnChange) {
+      this.relAddr = relAddr;
+      this.size = size;
+      this.exitOnChange = exitOnChange;
+    }
+
+    /**
+     * @param varMem Initial memory
+     * @param libOffset Offset between library and Cooja address space
+     * @param name Variable name
+     * @param defaultSize Size used if symbol size is unknown
+     * @param exitOnChange Exit if the value changes, instead of if it is non-zero
+     * @return Variable, or null if it does not exist in the library
+     */
+    static IdleCheckVariable create(VarMemory varMem, long libOffset, String name, int defaultSize, boolean exitOnChange) {
+      if (!varMem.variableExists(name)) {
+        return null;
+      }
+      Symbol symbol = varMem.getVariable(name);
+      int size = symbol.size > 0 ? Math.min(symbol.size, defaultSize) : defaultSize;
+      return new IdleCheckVariable((int) (symbol.addr - libOffset), size, exitOnChange);
+    }
+  }
+
+  /**
+   * Buffers of one mote for the variables read between events when running
+   * until idle. Each mote has its own, as motes with private libraries may
+   * execute concurrently.
+   *
+   * @see ContikiMoteType#createIdleCheck()
+   */
+  public static class IdleCheck {
+    private final byte[] runValue;
+    private final byte[][] values;
+    private final byte[][] previous;
+
+    private IdleCheck(IdleCheckVariable processRunValue, IdleCheckVariable[] checks) {
+      runValue = new byte[processRunValue == null ? 0 : processRunValue.size];
+      values = new byte[checks.length][];
+      previous = new byte[checks.length][];
+      for (int i = 0; i < checks.length; i++) {
+        values[i] = new byte[checks[i].size];
+        previous[i] = new byte[checks[i].size];
+      }
+    }
+
+    private static boolean isSet(byte[] value) {
+      for (byte b : value) {
+        if (b != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Creates the buffers a mote needs for {@link #tickUntilIdle(CoreComm, IdleCheck)}.
+   *
+   * @return Idle check buffers
+   */
+  public IdleCheck createIdleCheck() {
+    return new IdleCheck(processRunValue,
+        idleCheckVariables == null ? new IdleCheckVariable[0] : idleCheckVariables);
   }
 
   /**
@@ -791,6 +978,230 @@ public class ContikiMoteType implements MoteType {
     }
   }
 
+  /**
+   * Section parser holding the results of another parser, or of an earlier
+   * run loaded from the symbol cache. Symbols are stored relative to the
+   * library and relocated on each parse.
+   */
+  public static class CachedSectionParser extends SectionParser {
+
+    private final int cachedStartAddr;
+    private final int cachedSize;
+    private final Map<String, Symbol> cachedSymbols;
+
+    /**
+     * Creates a parser from the results of given parser.
+     *
+     * @param parser Section parser
+     */
+    public CachedSectionParser(SectionParser parser) {
+      super(null);
+      parser.parse(0);
+      cachedStartAddr = parser.getStartAddr();
+      cachedSize = parser.getSize();
+      if (parser.getVariables() != null) {
+        cachedSymbols = parser.getVariables();
+      } else {
+        cachedSymbols = new HashMap<>();
+      }
+    }
+
+    /**
+     * Creates a parser from earlier parsed section data.
+     *
+     * @param startAddr Relative section start address, or -1
+     * @param size Section size, or -1
+     * @param symbols Symbols with relative addresses
+     */
+    public CachedSectionParser(int startAddr, int size, Map<String, Symbol> symbols) {
+      super(null);
+      cachedStartAddr = startAddr;
+      cachedSize = size;
+      cachedSymbols = symbols;
+    }
+
+    @Override
+    protected void parseStartAddr() {
+      startAddr = cachedStartAddr;
+    }
+
+    @Override
+    protected void parseSize() {
+      size = cachedSize;
+    }
+
+    @Override
+    Map<String, Symbol> parseSymbols(long offset) {
+      Map<String, Symbol> symbols = new HashMap<>();
+      for (Symbol s : cachedSymbols.values()) {
+        symbols.put(s.name, new Symbol(s.type, s.name, s.section, s.addr + offset, s.size));
+      }
+      return symbols;
+    }
+
+    Map<String, Symbol> getCachedSymbols() {
+      return cachedSymbols;
+    }
+  }
+
+  /**
+   * Returns the symbol cache file of the current firmware. The file is named
+   * after a checksum of the library, the map file if used, and the parse
+   * settings, so any change of these results in a new cache entry.
+   *
+   * @param useCommand Parse with command instead of map file
+   * @return Cache file, or null if no checksum could be created
+   */
+  private File getSymbolCacheFile(boolean useCommand) {
+    String[] settings;
+    if (useCommand) {
+      settings = new String[] {
+          "PARSE_COMMAND", "COMMAND_VAR_NAME_ADDRESS_SIZE",
+          "COMMAND_DATA_START", "COMMAND_DATA_END", "COMMAND_VAR_SEC_DATA",
+          "COMMAND_BSS_START", "COMMAND_BSS_END", "COMMAND_VAR_SEC_BSS",
+          "COMMAND_COMMON_START", "COMMAND_COMMON_END", "COMMAND_VAR_SEC_COMMON"
+      };
+    } else {
+      settings = new String[] {
+          "MAPFILE_DATA_START", "MAPFILE_DATA_SIZE",
+          "MAPFILE_BSS_START", "MAPFILE_BSS_SIZE",
+          "MAPFILE_COMMON_START", "MAPFILE_COMMON_SIZE",
+          "MAPFILE_VAR_NAME",
+          "MAPFILE_VAR_ADDRESS_1", "MAPFILE_VAR_ADDRESS_2",
+          "MAPFILE_VAR_SIZE_1", "MAPFILE_VAR_SIZE_2"
+      };
+    }
+
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+      byte[] libraryChecksum = createChecksum(getContikiFirmwareFile());
+      if (libraryChecksum == null) {
+        return null;
+      }
+      messageDigest.update(libraryChecksum);
+      if (!useCommand) {
+        if (mapFile == null || !mapFile.exists()) {
+          return null;
+        }
+        byte[] mapChecksum = createChecksum(mapFile);
+        if (mapChecksum == null) {
+          return null;
+        }
+        messageDigest.update(mapChecksum);
+      }
+      for (String setting : settings) {
+        messageDigest.update((setting + "=" + Cooja.getExternalToolsSetting(setting) + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+      }
+
+      StringBuilder sb = new StringBuilder();
+      for (byte b : messageDigest.digest()) {
+        sb.append(String.format("%02x", b));
+      }
+      return new File(SYMBOL_CACHE_DIRECTORY, sb.toString() + ".symbols");
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Loads cached sections and symbols.
+   *
+   * @param cacheFile Cache file, may be null
+   * @return Data, bss and common section parsers, or null if not cached
+   */
+  private static CachedSectionParser[] loadSymbolCache(File cacheFile) {
+    if (cacheFile == null || !cacheFile.exists()) {
+      return null;
+    }
+
+    String contents = StringUtils.loadFromFile(cacheFile);
+    if (contents == null) {
+      return null;
+    }
+
+    try {
+      CachedSectionParser[] parsers = new CachedSectionParser[SYMBOL_CACHE_SECTIONS.length];
+      int sectionIdx = -1;
+      int startAddr = -1;
+      int size = -1;
+      Map<String, Symbol> symbols = null;
+      for (String line : contents.split("\n")) {
+        String[] fields = line.split(" ");
+        if (fields[0].equals("section")) {
+          if (symbols != null) {
+            parsers[sectionIdx] = new CachedSectionParser(startAddr, size, symbols);
+          }
+          sectionIdx = Arrays.asList(SYMBOL_CACHE_SECTIONS).indexOf(fields[1]);
+          startAddr = Integer.parseInt(fields[2]);
+          size = Integer.parseInt(fields[3]);
+          symbols = new HashMap<>();
+        } else if (fields[0].equals("symbol")) {
+          String section = fields[3].equals("-") ? null : fields[3];
+          symbols.put(fields[2], new Symbol(Symbol.Type.valueOf(fields[1]), fields[2],
+              section, Long.parseLong(fields[4]), Integer.parseInt(fields[5])));
+        }
+      }
+      if (symbols != null) {
+        parsers[sectionIdx] = new CachedSectionParser(startAddr, size, symbols);
+      }
+
+      for (CachedSectionParser parser : parsers) {
+        if (parser == null) {
+          logger.warn("Incomplete symbol cache: " + cacheFile);
+          return null;
+        }
+      }
+      return parsers;
+    } catch (RuntimeException e) {
+      logger.warn("Corrupt symbol cache: " + cacheFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Stores parsed sections and symbols for later loads of the same firmware.
+   *
+   * @param cacheFile Cache file, may be null
+   * @param parsers Data, bss and common section parsers
+   */
+  private static void saveSymbolCache(File cacheFile, CachedSectionParser[] parsers) {
+    if (cacheFile == null) {
+      return;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < parsers.length; i++) {
+      sb.append("section ").append(SYMBOL_CACHE_SECTIONS[i])
+          .append(' ').append(parsers[i].cachedStartAddr)
+          .append(' ').append(parsers[i].cachedSize).append('\n');
+      for (Symbol s : parsers[i].getCachedSymbols().values()) {
+        sb.append("symbol ").append(s.type)
+            .append(' ').append(s.name)
+            .append(' ').append(s.section == null ? "-" : s.section)
+            .append(' ').append(s.addr)
+            .append(' ').append(s.size).append('\n');
+      }
+    }
+
+    /* Write to temporary file first, concurrent loads may read the cache */
+    try {
+      cacheFile.getParentFile().mkdirs();
+      File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+      if (!StringUtils.saveToFile(tmpFile, sb.toString())) {
+        tmpFile.delete();
+        return;
+      }
+      try {
+        Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not write symbol cache " + cacheFile + ": " + e.getMessage());
+    }
+  }
+
   /**
    * Ticks the currently loaded mote. This should not be used directly, but
    * rather via {@link ContikiMote#execute(long)}.
@@ -799,6 +1210,81 @@ public class ContikiMoteType implements MoteType {
     myCoreComm.tick();
   }
 
+  /**
+   * Ticks the mote loaded in the given core communicator.
+   *
+   * @param coreComm Core communicator of a private library
+   * @see #createMoteCoreComm()
+   */
+  public void tick(CoreComm coreComm) {
+    coreComm.tick();
+  }
+
+  /**
+   * Ticks the currently loaded mote until it is idle, see
+   * {@link #tickUntilIdle(CoreComm, IdleCheck)}.
+   *
+   * @param idleCheck Buffers of the mote
+   * @return Number of handled Contiki events
+   */
+  public int tickUntilIdle(IdleCheck idleCheck) {
+    return tickUntilIdle(myCoreComm, idleCheck);
+  }
+
+  /**
+   * Ticks the mote loaded in the given core communicator repeatedly, at the
+   * same simulated time. Stops when no Contiki process is runnable, when the
+   * mote logs output or beeps, starts a radio transmission, schedules or
+   * cancels an rtimer, changes radio or LED state, or after
+   * {@link #MAX_EVENTS_PER_TICK} events.
+   * <p>
+   * A transmission in progress or a pending rtimer does not stop the loop,
+   * only a change does: the mote interfaces then need to start the
+   * transmission or reschedule the wakeup at once.
+   * <p>
+   * Memory is not synchronized between events; only the variables above are
+   * read from the library.
+   *
+   * @param coreComm Core communicator
+   * @param idleCheck Buffers of the mote, see {@link #createIdleCheck()}
+   * @return Number of handled Contiki events
+   */
+  public int tickUntilIdle(CoreComm coreComm, IdleCheck idleCheck) {
+    if (processRunValue == null) {
+      coreComm.tick();
+      return 1;
+    }
+
+    for (int i = 0; i < idleCheckVariables.length; i++) {
+      IdleCheckVariable check = idleCheckVariables[i];
+      if (check.exitOnChange) {
+        coreComm.getMemory(check.relAddr, check.size, idleCheck.previous[i]);
+      }
+    }
+
+    int events = 0;
+    while (true) {
+      coreComm.tick();
+      events++;
+
+      if (events >= MAX_EVENTS_PER_TICK) {
+        return events;
+      }
+      coreComm.getMemory(processRunValue.relAddr, processRunValue.size, idleCheck.runValue);
+      if (!IdleCheck.isSet(idleCheck.runValue)) {
+        return events;
+      }
+      for (int i = 0; i < idleCheckVariables.length; i++) {
+        IdleCheckVariable check = idleCheckVariables[i];
+        byte[] value = idleCheck.values[i];
+        coreComm.getMemory(check.relAddr, check.size, value);
+        if (check.exitOnChange ? !Arrays.equals(value, idleCheck.previous[i]) : IdleCheck.isSet(value)) {
+          return events;
+        }
+      }
+    }
+  }
+
   /**
    * Creates and returns a copy of this mote type's initial memory (just after
    * the init function has been run). When a new mote is created it should get
@@ -807,7 +1293,126 @@ public class ContikiMoteType implements MoteType {
    * @return Initial memory of a mote type
    */
   public SectionMoteMemory createInitialMemory() {
-    return initialMemory.clone();
+    if (!copyOnWriteMemory) {
+      return initialMemory.clone();
+    }
+
+    if (sharedInitialMemory == null) {
+      sharedInitialMemory = new SectionMoteMemory(initialMemory.getSymbolMap());
+      for (Map.Entry<String, MemoryInterface> entry : initialMemory.getSections().entrySet()) {
+        MemoryInterface section = entry.getValue();
+        sharedInitialMemory.addMemorySection(entry.getKey(), new PagedMemory(
+                section.getStartAddr(),
+                section.getLayout(),
+                section.getMemory(),
+                section.getSymbolMap(),
+                PagedMemory.DEFAULT_PAGE_SIZE));
+      }
+    }
+
+    /* Share all initial pages, they are copied when first modified */
+    SectionMoteMemory mem = new SectionMoteMemory(initialMemory.getSymbolMap());
+    for (Map.Entry<String, MemoryInterface> entry : sharedInitialMemory.getSections().entrySet()) {
+      mem.addMemorySection(entry.getKey(), new PagedMemory((PagedMemory) entry.getValue()));
+    }
+    return mem;
+  }
+
+  /**
+   * Creates and returns the initial memory of a mote with a private library.
+   * <p>
+   * Each library copy is loaded at its own native address, so sections and
+   * symbols are relocated to the copy and the memory is read from it.
+   * If the library exports memory buffers, sections access the library's
+   * memory in place and need no synchronization.
+   *
+   * @param coreComm Core communicator of a private library
+   * @param moteOffset Offset of the private library
+   * @return Initial memory of the mote
+   * @see #createMoteCoreComm()
+   */
+  SectionMoteMemory createInitialMemory(CoreComm coreComm, long moteOffset) {
+    long shift = moteOffset - offset;
+
+    SectionMoteMemory mem = new SectionMoteMemory(new HashMap<String, Symbol>());
+    for (Map.Entry<String, MemoryInterface> entry : initialMemory.getSections().entrySet()) {
+      MemoryInterface section = entry.getValue();
+      HashMap<String, Symbol> symbols = new HashMap<>();
+      for (Symbol sym : section.getSymbolMap().values()) {
+        symbols.put(sym.name, new Symbol(sym.type, sym.name, sym.section, sym.addr + shift, sym.size));
+      }
+      ByteBuffer buffer = coreComm.getMemoryBuffer(
+              (int) (section.getStartAddr() - offset),
+              section.getTotalSize());
+      if (buffer != null) {
+        mem.addMemorySection(entry.getKey(), new ByteBufferMemory(
+                section.getStartAddr() + shift,
+                section.getLayout(),
+                buffer,
+                symbols));
+      } else {
+        mem.addMemorySection(entry.getKey(), new ArrayMemory(
+                section.getStartAddr() + shift,
+                section.getTotalSize(),
+                section.getLayout(),
+                symbols));
+      }
+    }
+    getCoreMemory(coreComm, moteOffset, mem);
+    return mem;
+  }
+
+  /**
+   * @param mem Mote memory
+   * @return True if all sections access library memory in place
+   * @see #createInitialMemory(CoreComm, long)
+   */
+  boolean isResident(SectionMoteMemory mem) {
+    for (MemoryInterface section : mem.getSections().values()) {
+      if (!(section instanceof ByteBufferMemory)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Loads a private copy of this mote type's library, to be used by a single
+   * mote only.
+   *
+   * @return Core communicator of the library copy
+   * @throws MoteTypeCreationException If the library copy could not be loaded
+   * @see #isPerMoteLibrary()
+   */
+  public CoreComm createMoteCoreComm() throws MoteTypeCreationException {
+    if (myCoreComm == null) {
+      throw new MoteTypeCreationException("Mote type library not loaded");
+    }
+    String libName = getContikiFirmwareFile().getName();
+    if (libName.endsWith(librarySuffix)) {
+      libName = libName.substring(0, libName.length() - librarySuffix.length());
+    }
+    File copyFile = new File(
+            getContikiFirmwareFile().getParentFile(),
+            libName + "-" + (++libraryCopies) + librarySuffix);
+
+    CoreComm coreComm = CoreComm.createCoreCommCopy(javaClassName, getContikiFirmwareFile(), copyFile);
+    coreComm.setReferenceAddress(referenceVarAddr);
+    return coreComm;
+  }
+
+  /**
+   * Returns the offset between the Contiki address space of given library
+   * and its relative addresses.
+   *
+   * @param coreComm Core communicator
+   * @return Library offset
+   */
+  long getLibraryOffset(CoreComm coreComm) {
+    MemoryLayout layout = MemoryLayout.getNative();
+    byte[] data = new byte[layout.intSize];
+    coreComm.getMemory(referenceVarAddr, data.length, data);
+    return MemoryBuffer.wrap(layout, data).getInt() & 0xFFFFFFFFL;
   }
 
   /**
@@ -818,18 +1423,40 @@ public class ContikiMoteType implements MoteType {
    *          Memory to set
    */
   public void getCoreMemory(SectionMoteMemory mem) {
+    getCoreMemory(myCoreComm, offset, mem);
+  }
+
+  /**
+   * Copy core memory of given library to given memory.
+   *
+   * @param coreComm Core communicator
+   * @param libOffset Library offset
+   * @param mem Memory to set
+   * @see #getLibraryOffset(CoreComm)
+   */
+  void getCoreMemory(CoreComm coreComm, long libOffset, SectionMoteMemory mem) {
     for (MemoryInterface section : mem.getSections().values()) {
-      getCoreMemory(
-              (int) (section.getStartAddr() - offset),
+      if (section instanceof ByteBufferMemory) {
+        /* Library memory accessed in place */
+        continue;
+      }
+      if (section instanceof PagedMemory || mem.isTrackingChanges(section)) {
+        /* Only modified pages are written, and marked if tracked */
+        byte[] buffer = coreComm.getTransferBuffer(section.getTotalSize());
+        coreComm.getMemory(
+                (int) (section.getStartAddr() - libOffset),
+                section.getTotalSize(),
+                buffer);
+        mem.updateSection(section, buffer);
+        continue;
+      }
+      coreComm.getMemory(
+              (int) (section.getStartAddr() - libOffset),
               section.getTotalSize(),
               section.getMemory());
     }
   }
 
-  private void getCoreMemory(int relAddr, int length, byte[] data) {
-    myCoreComm.getMemory(relAddr, length, data);
-  }
-
   /**
    * Copy given memory to the Contiki system. This should not be used directly,
    * but instead via ContikiMote.setMemory().
@@ -838,18 +1465,39 @@ public class ContikiMoteType implements MoteType {
    * New memory
    */
   public void setCoreMemory(SectionMoteMemory mem) {
+    setCoreMemory(myCoreComm, offset, mem);
+  }
+
+  /**
+   * Copy given memory to given library.
+   *
+   * @param coreComm Core communicator
+   * @param libOffset Library offset
+   * @param mem New memory
+   * @see #getLibraryOffset(CoreComm)
+   */
+  void setCoreMemory(CoreComm coreComm, long libOffset, SectionMoteMemory mem) {
     for (MemoryInterface section : mem.getSections().values()) {
-      setCoreMemory(
-              (int) (section.getStartAddr() - offset),
+      if (section instanceof ByteBufferMemory) {
+        /* Library memory accessed in place */
+        continue;
+      }
+      if (section instanceof PagedMemory) {
+        byte[] buffer = coreComm.getTransferBuffer(section.getTotalSize());
+        ((PagedMemory) section).copyTo(buffer);
+        coreComm.setMemory(
+                (int) (section.getStartAddr() - libOffset),
+                section.getTotalSize(),
+                buffer);
+        continue;
+      }
+      coreComm.setMemory(
+              (int) (section.getStartAddr() - libOffset),
               section.getTotalSize(),
               section.getMemory());
     }
   }
 
-  private void setCoreMemory(int relAddr, int length, byte[] mem) {
-    myCoreComm.setMemory(relAddr, length, mem);
-  }
-
   @Override
   public String getIdentifier() {
     return identifier;
@@ -918,6 +1566,50 @@ public class ContikiMoteType implements MoteType {
     return netStack;
   }
 
+  /**
+   * @param perMoteLibrary Load a private library copy for each mote
+   */
+  public void setPerMoteLibrary(boolean perMoteLibrary) {
+    this.perMoteLibrary = perMoteLibrary;
+  }
+
+  /**
+   * @return Whether each mote loads a private library copy
+   */
+  public boolean isPerMoteLibrary() {
+    return perMoteLibrary;
+  }
+
+  /**
+   * @param runUntilIdle Handle all runnable Contiki events in one tick
+   * @see #tickUntilIdle(CoreComm, IdleCheck)
+   */
+  public void setRunUntilIdle(boolean runUntilIdle) {
+    this.runUntilIdle = runUntilIdle;
+  }
+
+  /**
+   * @return Whether motes handle all runnable Contiki events in one tick
+   */
+  public boolean isRunUntilIdle() {
+    return runUntilIdle;
+  }
+
+  /**
+   * @param copyOnWriteMemory Share unmodified memory pages between motes
+   */
+  public void setCopyOnWriteMemory(boolean copyOnWriteMemory) {
+    this.copyOnWriteMemory = copyOnWriteMemory;
+  }
+
+  /**
+   * @return Whether motes share unmodified memory pages
+   * @see PagedMemory
+   */
+  public boolean isCopyOnWriteMemory() {
+    return copyOnWriteMemory;
+  }
+
   private static String getFirstMatchGroup(String[] lines, String regexp, int groupNr) {
     if (regexp == null) {
       return null;
@@ -1228,6 +1920,24 @@ public class ContikiMoteType implements MoteType {
       config.add(element);
     }
 
+    if (isPerMoteLibrary()) {
+      element = new Element("permotelibrary");
+      element.setText(Boolean.toString(true));
+      config.add(element);
+    }
+
+    if (isRunUntilIdle()) {
+      element = new Element("rununtilidle");
+      element.setText(Boolean.toString(true));
+      config.add(element);
+    }
+
+    if (isCopyOnWriteMemory()) {
+      element = new Element("copyonwrite");
+      element.setText(Boolean.toString(true));
+      config.add(element);
+    }
+
     return config;
   }
 
@@ -1276,6 +1986,15 @@ public class ContikiMoteType implements MoteType {
         case "netstack":
           netStack = NetworkStack.parseConfig(element.getText());
           break;
+        case "permotelibrary":
+          perMoteLibrary = Boolean.parseBoolean(element.getText());
+          break;
+        case "rununtilidle":
+          runUntilIdle = Boolean.parseBoolean(element.getText());
+          break;
+        case "copyonwrite":
+          copyOnWriteMemory = Boolean.parseBoolean(element.getText());
+          break;
         case "moteinterface":
           String intfClass = element.getText().trim();
           /* Backwards compatibility: se.sics -> org.contikios */
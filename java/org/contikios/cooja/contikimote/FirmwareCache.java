@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.contikimote;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.Cooja;
+import org.contikios.cooja.MoteInterface;
+
+/**
+ * Content-addressed cache of compiled Contiki libraries.
+ * <p>
+ * Each mote type has a key, a checksum of the compile commands, the
+ * compilation environment, the mote interfaces and the application
+ * makefiles. A key may have several entries. Each entry holds a library, a
+ * map file and a manifest listing the checksum of every file the build read,
+ * taken from the dependency (.d) files the compiler wrote. An entry is used
+ * if all files in its manifest are unchanged, so only the files a build
+ * actually depends on are read, not the whole Contiki tree.
+ * <p>
+ * The cache directory is configured by the external tools setting
+ * CONTIKI_BUILD_CACHE_DIR, and may be shared by concurrent Cooja instances.
+ * Entries are created in a temporary directory and moved into place.
+ */
+public class FirmwareCache {
+  private static final Logger logger = Logger.getLogger(FirmwareCache.class);
+
+  private final static String LIBRARY_FILENAME = "library" + ContikiMoteType.librarySuffix;
+  private final static String MAP_FILENAME = "library" + ContikiMoteType.mapSuffix;
+  private final static String MANIFEST_FILENAME = "manifest";
+
+  /* Placeholders of absolute paths, which differ between checkouts */
+  private final static String APP_DIR = "$(APP)";
+  private final static String CONTIKI_DIR = "$(CONTIKI)";
+
+  /* File checksums computed in this session, by path, modification time and size */
+  private final static HashMap<String, String> fileChecksums = new HashMap<>();
+
+  /**
+   * @return Configured cache directory, or null if caching is disabled
+   */
+  public static File getCacheDirectory() {
+    String dir = Cooja.getExternalToolsSetting("CONTIKI_BUILD_CACHE_DIR", "");
+    if (dir == null || dir.trim().isEmpty()) {
+      return null;
+    }
+    return new File(dir.trim());
+  }
+
+  /**
+   * Creates the cache key of a mote type. Source files are not read, they
+   * are checked against the manifests of the key's entries.
+   *
+   * @param moteType Mote type
+   * @param env Compilation environment
+   * @return Cache key, or null at failure
+   */
+  public static String createKey(ContikiMoteType moteType, String[][] env) {
+    File appDir = moteType.getContikiSourceFile().getParentFile();
+
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+      String appPath = appDir.getCanonicalPath();
+      String contikiPath = getContikiDirectory().getCanonicalPath();
+
+      update(messageDigest, "commands", moteType.getCompileCommands());
+      for (String[] var : env) {
+        if (var[0].equals("PATH")) {
+          continue;
+        }
+        String value = var[1] == null ? "" : var[1]
+            .replace(appPath, APP_DIR)
+            .replace(contikiPath, CONTIKI_DIR);
+        update(messageDigest, var[0], value);
+      }
+      if (moteType.getCoreInterfaces() != null) {
+        update(messageDigest, "core interfaces", Arrays.toString(moteType.getCoreInterfaces()));
+      }
+      if (moteType.getMoteInterfaceClasses() != null) {
+        for (Class<? extends MoteInterface> intf : moteType.getMoteInterfaceClasses()) {
+          update(messageDigest, "interface", intf.getName());
+        }
+      }
+      update(messageDigest, "network stack", moteType.getNetworkStack().getConfig());
+
+      /* Makefiles are not listed in dependency files */
+      File[] makefiles = appDir.listFiles();
+      if (makefiles != null) {
+        Arrays.sort(makefiles);
+        for (File f : makefiles) {
+          if (f.isFile() && (f.getName().startsWith("Makefile") || f.getName().endsWith(".mk"))) {
+            update(messageDigest, f.getName(), getFileChecksum(f));
+          }
+        }
+      }
+
+      return toHex(messageDigest.digest());
+    } catch (NoSuchAlgorithmException | IOException e) {
+      logger.warn("Could not create firmware cache key: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Copies a cached library and map file to the given destinations, if the
+   * cache holds an entry for given key whose dependencies are unchanged.
+   *
+   * @param cacheDir Cache directory
+   * @param key Cache key
+   * @param appDir Application directory
+   * @param libFile Library destination
+   * @param mapFile Map file destination
+   * @return True if the library was found in the cache
+   */
+  public static boolean restore(File cacheDir, String key, File appDir, File libFile, File mapFile) {
+    File[] entries = new File(cacheDir, key).listFiles();
+    if (entries == null) {
+      return false;
+    }
+
+    for (File entry : entries) {
+      File cachedLib = new File(entry, LIBRARY_FILENAME);
+      File cachedMap = new File(entry, MAP_FILENAME);
+      if (!cachedLib.exists() || !isUpToDate(new File(entry, MANIFEST_FILENAME), appDir)) {
+        continue;
+      }
+
+      try {
+        libFile.getParentFile().mkdirs();
+        Files.copy(cachedLib.toPath(), libFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (cachedMap.exists()) {
+          Files.copy(cachedMap.toPath(), mapFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+      } catch (IOException e) {
+        logger.warn("Could not restore cached firmware " + entry + ": " + e.getMessage());
+        libFile.delete();
+        mapFile.delete();
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds a compiled library and map file to the cache. The dependencies of
+   * the library are read from the dependency files next to its objects; if
+   * there are none, the library is not cached.
+   *
+   * @param cacheDir Cache directory
+   * @param key Cache key
+   * @param appDir Application directory
+   * @param libFile Compiled library
+   * @param mapFile Map file, may not exist
+   */
+  public static void store(File cacheDir, String key, File appDir, File libFile, File mapFile) {
+    String manifest;
+    try {
+      manifest = createManifest(appDir, new File(libFile.getParentFile(), "obj"));
+    } catch (NoSuchAlgorithmException | IOException e) {
+      logger.warn("Could not read firmware dependencies: " + e.getMessage());
+      return;
+    }
+    if (manifest == null) {
+      logger.info("No dependency files found, not caching " + libFile.getName());
+      return;
+    }
+
+    File entry;
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+      entry = new File(new File(cacheDir, key),
+          toHex(messageDigest.digest(manifest.getBytes(StandardCharsets.UTF_8))));
+    } catch (NoSuchAlgorithmException e) {
+      return;
+    }
+    if (entry.exists()) {
+      return;
+    }
+
+    File tmpDir = null;
+    try {
+      entry.getParentFile().mkdirs();
+      tmpDir = Files.createTempDirectory(entry.getParentFile().toPath(), entry.getName() + ".").toFile();
+      Files.copy(libFile.toPath(), new File(tmpDir, LIBRARY_FILENAME).toPath());
+      if (mapFile.exists()) {
+        Files.copy(mapFile.toPath(), new File(tmpDir, MAP_FILENAME).toPath());
+      }
+      Files.write(new File(tmpDir, MANIFEST_FILENAME).toPath(), manifest.getBytes(StandardCharsets.UTF_8));
+      Files.move(tmpDir.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      tmpDir = null;
+    } catch (IOException e) {
+      /* Another instance may have stored the same entry */
+      if (!entry.exists()) {
+        logger.warn("Could not store firmware in cache " + entry + ": " + e.getMessage());
+      }
+    } finally {
+      if (tmpDir != null) {
+        for (File f : tmpDir.listFiles()) {
+          f.delete();
+        }
+        tmpDir.delete();
+      }
+    }
+  }
+
+  private static File getContikiDirectory() {
+    return new File(Cooja.getExternalToolsSetting("PATH_CONTIKI", ""));
+  }
+
+  /**
+   * Creates the manifest of a build: one line per dependency, holding its
+   * checksum and its path, sorted by path.
+   *
+   * @param appDir Application directory, relative dependencies start here
+   * @param objDir Object directory holding the dependency files
+   * @return Manifest, or null if there are no dependency files
+   */
+  private static String createManifest(File appDir, File objDir)
+      throws NoSuchAlgorithmException, IOException {
+    ArrayList<File> depFiles = new ArrayList<>();
+    listDependencyFiles(objDir, depFiles);
+    if (depFiles.isEmpty()) {
+      return null;
+    }
+
+    TreeSet<String> dependencies = new TreeSet<>();
+    for (File depFile : depFiles) {
+      parseDependencyFile(depFile, dependencies);
+    }
+
+    String appPath = appDir.getCanonicalPath();
+    String contikiPath = getContikiDirectory().getCanonicalPath();
+    TreeMap<String, String> lines = new TreeMap<>();
+    for (String dependency : dependencies) {
+      File f = new File(dependency);
+      if (!f.isAbsolute()) {
+        f = new File(appDir, dependency);
+      }
+      if (!f.isFile()) {
+        continue;
+      }
+      String path = f.getCanonicalPath();
+      if (path.startsWith(appPath + File.separator)) {
+        path = APP_DIR + path.substring(appPath.length());
+      } else if (path.startsWith(contikiPath + File.separator)) {
+        path = CONTIKI_DIR + path.substring(contikiPath.length());
+      }
+      lines.put(path, getFileChecksum(f));
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (String path : lines.keySet()) {
+      sb.append(lines.get(path)).append(' ').append(path).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @param manifest Manifest file
+   * @param appDir Application directory
+   * @return True if all dependencies listed in the manifest are unchanged
+   */
+  private static boolean isUpToDate(File manifest, File appDir) {
+    try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+      String appPath = appDir.getCanonicalPath();
+      String contikiPath = getContikiDirectory().getCanonicalPath();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int sep = line.indexOf(' ');
+        if (sep < 0) {
+          return false;
+        }
+        String path = line.substring(sep + 1);
+        if (path.startsWith(APP_DIR)) {
+          path = appPath + path.substring(APP_DIR.length());
+        } else if (path.startsWith(CONTIKI_DIR)) {
+          path = contikiPath + path.substring(CONTIKI_DIR.length());
+        }
+        File f = new File(path);
+        if (!f.isFile() || !line.substring(0, sep).equals(getFileChecksum(f))) {
+          return false;
+        }
+      }
+      return true;
+    } catch (NoSuchAlgorithmException | IOException e) {
+      return false;
+    }
+  }
+
+  private static void listDependencyFiles(File dir, ArrayList<File> files) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (child.isDirectory()) {
+        listDependencyFiles(child, files);
+      } else if (child.getName().endsWith(".d")) {
+        files.add(child);
+      }
+    }
+  }
+
+  /**
+   * Adds the prerequisites listed in a make dependency file, as written by
+   * the compiler's -MMD option, to given set.
+   */
+  private static void parseDependencyFile(File depFile, TreeSet<String> dependencies)
+      throws IOException {
+    String contents = new String(Files.readAllBytes(depFile.toPath()), StandardCharsets.UTF_8);
+    for (String rule : contents.replace("\\\r\n", " ").replace("\\\n", " ").split("\n")) {
+      int colon = rule.indexOf(": ");
+      if (colon < 0) {
+        colon = rule.endsWith(":") ? rule.length() - 1 : -1;
+      }
+      if (colon < 0) {
+        continue;
+      }
+      /* Escaped spaces belong to file names */
+      String[] tokens = rule.substring(colon + 1).trim().replace("\\ ", "\0").split("\\s+");
+      for (String token : tokens) {
+        if (!token.isEmpty()) {
+          dependencies.add(token.replace("\0", " "));
+        }
+      }
+    }
+  }
+
+  private static String getFileChecksum(File file)
+      throws NoSuchAlgorithmException, IOException {
+    String id = file.getPath() + ":" + file.lastModified() + ":" + file.length();
+    synchronized (fileChecksums) {
+      String checksum = fileChecksums.get(id);
+      if (checksum != null) {
+        return checksum;
+      }
+    }
+
+    MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+    byte[] readBytes = new byte[4096];
+    try (InputStream fileInputStream = new FileInputStream(file)) {
+      int bytesRead;
+      while ((bytesRead = fileInputStream.read(readBytes)) > 0) {
+        messageDigest.update(readBytes, 0, bytesRead);
+      }
+    }
+    String checksum = toHex(messageDigest.digest());
+    synchronized (fileChecksums) {
+      fileChecksums.put(id, checksum);
+    }
+    return checksum;
+  }
+
+  private static void update(MessageDigest messageDigest, String name, String value) {
+    messageDigest.update((name + "=" + value + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toHex(byte[] digest) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,595 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.contikimote;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.contikios.cooja.mote.memory.ArrayMemory;
+import org.contikios.cooja.mote.memory.ByteBufferMemory;
+import org.contikios.cooja.mote.memory.MemoryInterface;
+import org.contikios.cooja.mote.memory.MemoryInterface.Symbol;
+import org.contikios.cooja.mote.memory.MemoryLayout;
+import org.contikios.cooja.mote.memory.PagedMemory;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
+
+/**
+ * Append-only journal of the memory of a Contiki mote.
+ * <p>
+ * After every tick, the pages the memory marked as changed are appended as a
+ * compressed delta record, see
+ * {@link SectionMoteMemory#startTrackingChanges()}. Sections accessed in
+ * place by a private library are not marked, and are instead compared page
+ * by page with their previously recorded contents. Every {@link #KEYFRAME_INTERVAL} records a
+ * keyframe holding the complete memory is written instead, so the memory at
+ * any recorded time can be rebuilt from the preceding keyframe and the deltas
+ * following it. Ticks that do not modify memory are not recorded.
+ * <p>
+ * The file starts with the page size and the name, start address and size of
+ * each section. Each record holds its type, simulated time, uncompressed and
+ * compressed payload length, and the deflated payload. A keyframe payload is
+ * the contents of all sections, a delta payload a sequence of section index,
+ * offset, length and data of modified pages.
+ *
+ * @see ContikiMote#setMemoryJournal(MemoryJournal)
+ * @see Reader
+ */
+public class MemoryJournal {
+
+  private static final int MAGIC = 0x434d4a31; /* "CMJ1" */
+  private static final byte KEYFRAME = 0;
+  private static final byte DELTA = 1;
+  private static final int RECORD_HEADER_SIZE = 1 + 8 + 4 + 4;
+
+  /** Granularity of modification detection [bytes] */
+  public static final int PAGE_SIZE = SectionMoteMemory.CHANGE_PAGE_SIZE;
+  /** Number of records between keyframes */
+  public static final int KEYFRAME_INTERVAL = 1000;
+
+  private final File file;
+  private final DataOutputStream out;
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private boolean closed = false;
+
+  private SectionMoteMemory memory = null;
+  private String[] names = null;
+  private MemoryInterface[] sections = null;
+  /* Recorded contents of sections without change tracking, else null */
+  private byte[][] recorded = null;
+  private byte[] current = new byte[0];
+  private byte[] raw = new byte[1024];
+  private byte[] compressed = new byte[1024];
+  private int recordsSinceKeyframe = KEYFRAME_INTERVAL;
+
+  /**
+   * Creates a new journal. The journal is append-only: an existing journal
+   * is never overwritten, see {@link #nextFile(File)}.
+   *
+   * @param file Journal file, must not exist or be empty
+   * @throws IOException If the file is a non-empty journal or could not be created
+   */
+  public MemoryJournal(File file) throws IOException {
+    if (file.length() > 0) {
+      throw new IOException("Memory journal already exists: " + file);
+    }
+    this.file = file;
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024));
+  }
+
+  /**
+   * Returns the file a new journal continuing given journal is written to.
+   * This is the given file if it does not exist or is empty, else the first
+   * such file named after it with a numeric suffix, such as
+   * <code>mote1.journal.2</code> for <code>mote1.journal</code> or
+   * <code>mote1.journal.1</code>.
+   *
+   * @param file Journal file
+   * @return Journal file that may be created
+   */
+  public static File nextFile(File file) {
+    if (file.length() == 0) {
+      return file;
+    }
+    String base = file.getName().replaceFirst("\\.[0-9]+$", "");
+    for (int i = 1; ; i++) {
+      File next = new File(file.getParentFile(), base + "." + i);
+      if (next.length() == 0) {
+        return next;
+      }
+    }
+  }
+
+  /**
+   * @return Journal file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Records the current contents of given memory. The first call determines
+   * the recorded sections; later memories must have the same sections.
+   *
+   * @param time Simulated time
+   * @param mem Mote memory
+   * @throws IOException If the journal could not be written
+   */
+  public synchronized void record(long time, SectionMoteMemory mem) throws IOException {
+    if (closed) {
+      throw new IOException("Journal closed");
+    }
+    if (names == null) {
+      writeHeader(mem);
+    } else if (mem != memory) {
+      useMemory(mem);
+      recordsSinceKeyframe = KEYFRAME_INTERVAL;
+    }
+
+    if (recordsSinceKeyframe >= KEYFRAME_INTERVAL) {
+      writeKeyframe(time);
+    } else {
+      writeDelta(time);
+    }
+  }
+
+  /**
+   * Writes buffered records to the file.
+   *
+   * @throws IOException If the journal could not be written
+   */
+  public synchronized void flush() throws IOException {
+    if (!closed) {
+      out.flush();
+    }
+  }
+
+  /**
+   * Writes buffered records and closes the journal.
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (memory != null) {
+      memory.stopTrackingChanges();
+      memory = null;
+    }
+    deflater.end();
+    try {
+      out.close();
+    } catch (IOException e) {
+      /* Records written so far remain readable */
+    }
+  }
+
+  private void writeHeader(SectionMoteMemory mem) throws IOException {
+    final Map<String, MemoryInterface> all = mem.getSections();
+    names = all.keySet().toArray(new String[0]);
+    Arrays.sort(names, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return Long.compare(all.get(a).getStartAddr(), all.get(b).getStartAddr());
+      }
+    });
+    useMemory(mem);
+
+    out.writeInt(MAGIC);
+    out.writeInt(PAGE_SIZE);
+    out.writeInt(names.length);
+    for (int i = 0; i < names.length; i++) {
+      out.writeUTF(names[i]);
+      out.writeLong(sections[i].getStartAddr());
+      out.writeInt(sections[i].getTotalSize());
+    }
+  }
+
+  private void useMemory(SectionMoteMemory mem) throws IOException {
+    MemoryInterface[] newSections = new MemoryInterface[names.length];
+    for (int i = 0; i < names.length; i++) {
+      newSections[i] = mem.getSection(names[i]);
+      if (newSections[i] == null
+              || (sections != null && newSections[i].getTotalSize() != sections[i].getTotalSize())) {
+        throw new IOException("Memory section " + names[i] + " changed");
+      }
+    }
+    if (memory != null) {
+      memory.stopTrackingChanges();
+    }
+    mem.startTrackingChanges();
+    memory = mem;
+    sections = newSections;
+
+    recorded = new byte[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      if (!mem.isTrackingChanges(sections[i])) {
+        recorded[i] = new byte[sections[i].getTotalSize()];
+      }
+    }
+  }
+
+  private void writeKeyframe(long time) throws IOException {
+    int len = 0;
+    for (int i = 0; i < sections.length; i++) {
+      int size = sections[i].getTotalSize();
+      raw = ensureCapacity(raw, len + size);
+      readSection(sections[i], 0, raw, len, size);
+      if (recorded[i] != null) {
+        System.arraycopy(raw, len, recorded[i], 0, size);
+      }
+      len += size;
+    }
+    writeRecord(KEYFRAME, time, len);
+    recordsSinceKeyframe = 0;
+
+    /* Keep complete keyframes on disk, should the simulation not terminate cleanly */
+    out.flush();
+  }
+
+  private void writeDelta(long time) throws IOException {
+    int len = 0;
+    for (int i = 0; i < sections.length; i++) {
+      MemoryInterface section = sections[i];
+      int size = section.getTotalSize();
+      if (recorded[i] == null) {
+        /* Pages marked by the memory since the last tick */
+        for (int p = memory.nextChangedPage(section, 0); p >= 0; p = memory.nextChangedPage(section, p + 1)) {
+          int off = p * PAGE_SIZE;
+          int n = Math.min(PAGE_SIZE, size - off);
+          raw = ensureCapacity(raw, len + 12 + n);
+          len = putInt(raw, len, i);
+          len = putInt(raw, len, off);
+          len = putInt(raw, len, n);
+          readSection(section, off, raw, len, n);
+          len += n;
+        }
+        continue;
+      }
+
+      byte[] copy = recorded[i];
+      if (current.length < size) {
+        current = new byte[size];
+      }
+      readSection(section, 0, current, 0, size);
+      if (Arrays.equals(current, 0, size, copy, 0, size)) {
+        continue;
+      }
+      for (int off = 0; off < size; off += PAGE_SIZE) {
+        int n = Math.min(PAGE_SIZE, size - off);
+        if (Arrays.equals(current, off, off + n, copy, off, off + n)) {
+          continue;
+        }
+        System.arraycopy(current, off, copy, off, n);
+        raw = ensureCapacity(raw, len + 12 + n);
+        len = putInt(raw, len, i);
+        len = putInt(raw, len, off);
+        len = putInt(raw, len, n);
+        System.arraycopy(current, off, raw, len, n);
+        len += n;
+      }
+    }
+    if (len == 0) {
+      return;
+    }
+    writeRecord(DELTA, time, len);
+    recordsSinceKeyframe++;
+  }
+
+  private void writeRecord(byte type, long time, int len) throws IOException {
+    deflater.reset();
+    deflater.setInput(raw, 0, len);
+    deflater.finish();
+    int clen = 0;
+    while (!deflater.finished()) {
+      if (clen == compressed.length) {
+        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+      }
+      clen += deflater.deflate(compressed, clen, compressed.length - clen);
+    }
+
+    out.writeByte(type);
+    out.writeLong(time);
+    out.writeInt(len);
+    out.writeInt(clen);
+    out.write(compressed, 0, clen);
+  }
+
+  private static void readSection(MemoryInterface section, int offset, byte[] dst, int dstOffset, int length) {
+    if (section instanceof PagedMemory) {
+      ((PagedMemory) section).copyTo(offset, dst, dstOffset, length);
+    } else if (section instanceof ByteBufferMemory) {
+      ByteBuffer buffer = ((ByteBufferMemory) section).getBuffer().duplicate();
+      buffer.position(offset);
+      buffer.get(dst, dstOffset, length);
+    } else {
+      System.arraycopy(section.getMemory(), offset, dst, dstOffset, length);
+    }
+  }
+
+  private static byte[] ensureCapacity(byte[] array, int size) {
+    if (array.length >= size) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(size, array.length * 2));
+  }
+
+  private static int putInt(byte[] array, int pos, int value) {
+    array[pos] = (byte) (value >> 24);
+    array[pos + 1] = (byte) (value >> 16);
+    array[pos + 2] = (byte) (value >> 8);
+    array[pos + 3] = (byte) value;
+    return pos + 4;
+  }
+
+  private static int getInt(byte[] array, int pos) {
+    return ((array[pos] & 0xff) << 24) | ((array[pos + 1] & 0xff) << 16)
+            | ((array[pos + 2] & 0xff) << 8) | (array[pos + 3] & 0xff);
+  }
+
+  /**
+   * Rebuilds mote memory at past simulated times from a journal file.
+   * <p>
+   * Records are indexed when the reader is created. A truncated last record,
+   * such as one still being written, is ignored.
+   */
+  public static class Reader {
+    private final RandomAccessFile in;
+    private final Inflater inflater = new Inflater();
+
+    private final String[] names;
+    private final long[] starts;
+    private final int[] sizes;
+
+    private int records = 0;
+    private long[] times = new long[256];
+    private long[] positions = new long[256];
+    private byte[] types = new byte[256];
+
+    private byte[] raw = new byte[0];
+    private byte[] compressed = new byte[0];
+
+    /**
+     * Opens and indexes a journal file.
+     *
+     * @param file Journal file
+     * @throws IOException If the file could not be read or is no journal
+     */
+    public Reader(File file) throws IOException {
+      in = new RandomAccessFile(file, "r");
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IOException("Not a memory journal: " + file);
+        }
+        in.readInt(); /* Page size */
+        int nrSections = in.readInt();
+        names = new String[nrSections];
+        starts = new long[nrSections];
+        sizes = new int[nrSections];
+        for (int i = 0; i < nrSections; i++) {
+          names[i] = in.readUTF();
+          starts[i] = in.readLong();
+          sizes[i] = in.readInt();
+        }
+        index();
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    private void index() throws IOException {
+      long length = in.length();
+      long pos = in.getFilePointer();
+      while (pos + RECORD_HEADER_SIZE <= length) {
+        in.seek(pos);
+        byte type = in.readByte();
+        long time = in.readLong();
+        in.readInt(); /* Uncompressed length */
+        int clen = in.readInt();
+        if (pos + RECORD_HEADER_SIZE + clen > length) {
+          break;
+        }
+        if (records == times.length) {
+          times = Arrays.copyOf(times, records * 2);
+          positions = Arrays.copyOf(positions, records * 2);
+          types = Arrays.copyOf(types, records * 2);
+        }
+        times[records] = time;
+        positions[records] = pos;
+        types[records] = type;
+        records++;
+        pos += RECORD_HEADER_SIZE + clen;
+      }
+    }
+
+    /**
+     * @return Number of records in journal
+     */
+    public int getNumberOfRecords() {
+      return records;
+    }
+
+    /**
+     * @return Simulated time of first record, or -1 if journal is empty
+     */
+    public long getStartTime() {
+      return records == 0 ? -1 : times[0];
+    }
+
+    /**
+     * @return Simulated time of last record, or -1 if journal is empty
+     */
+    public long getEndTime() {
+      return records == 0 ? -1 : times[records - 1];
+    }
+
+    /**
+     * Rebuilds the memory contents at given simulated time, that is after the
+     * last recorded tick at or before that time.
+     *
+     * @param time Simulated time
+     * @return Contents of each section, in journal order, or null if time
+     * is before the first record
+     * @throws IOException If the journal could not be read
+     */
+    public byte[][] getContentsAt(long time) throws IOException {
+      /* Last record at or before time */
+      int low = 0;
+      int high = records;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (times[mid] <= time) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      int last = low - 1;
+      if (last < 0) {
+        return null;
+      }
+      int first = last;
+      while (types[first] != KEYFRAME) {
+        first--;
+        if (first < 0) {
+          throw new IOException("No keyframe before record " + last);
+        }
+      }
+
+      byte[][] contents = new byte[names.length][];
+      for (int i = 0; i < names.length; i++) {
+        contents[i] = new byte[sizes[i]];
+      }
+      for (int r = first; r <= last; r++) {
+        apply(r, contents);
+      }
+      return contents;
+    }
+
+    /**
+     * Rebuilds the memory at given simulated time.
+     * Sections take their layout and symbols from the sections of the same
+     * name in the given template, typically the current memory of the mote.
+     *
+     * @param time Simulated time
+     * @param template Memory providing layout and symbols, may be null
+     * @return Memory, or null if time is before the first record
+     * @throws IOException If the journal could not be read
+     */
+    public SectionMoteMemory getMemoryAt(long time, SectionMoteMemory template) throws IOException {
+      byte[][] contents = getContentsAt(time);
+      if (contents == null) {
+        return null;
+      }
+      SectionMoteMemory mem = new SectionMoteMemory(new HashMap<String, Symbol>());
+      for (int i = 0; i < names.length; i++) {
+        MemoryInterface section = template == null ? null : template.getSection(names[i]);
+        MemoryLayout layout = section == null ? MemoryLayout.getNative() : section.getLayout();
+        Map<String, Symbol> symbols = section == null ? new HashMap<String, Symbol>() : section.getSymbolMap();
+        mem.addMemorySection(names[i], new ArrayMemory(starts[i], layout, contents[i], true, symbols));
+      }
+      return mem;
+    }
+
+    private void apply(int record, byte[][] contents) throws IOException {
+      in.seek(positions[record]);
+      byte type = in.readByte();
+      in.readLong();
+      int len = in.readInt();
+      int clen = in.readInt();
+      if (compressed.length < clen) {
+        compressed = new byte[clen];
+      }
+      if (raw.length < len) {
+        raw = new byte[len];
+      }
+      in.readFully(compressed, 0, clen);
+
+      inflater.reset();
+      inflater.setInput(compressed, 0, clen);
+      try {
+        int done = 0;
+        while (done < len && !inflater.finished()) {
+          int n = inflater.inflate(raw, done, len - done);
+          if (n == 0 && inflater.needsInput()) {
+            break;
+          }
+          done += n;
+        }
+        if (done != len) {
+          throw new IOException("Corrupt journal record " + record);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt journal record " + record, e);
+      }
+
+      if (type == KEYFRAME) {
+        int pos = 0;
+        for (byte[] section : contents) {
+          System.arraycopy(raw, pos, section, 0, section.length);
+          pos += section.length;
+        }
+        return;
+      }
+      int pos = 0;
+      while (pos < len) {
+        int section = getInt(raw, pos);
+        int off = getInt(raw, pos + 4);
+        int n = getInt(raw, pos + 8);
+        System.arraycopy(raw, pos + 12, contents[section], off, n);
+        pos += 12 + n;
+      }
+    }
+
+    /**
+     * Closes the journal file.
+     */
+    public void close() {
+      inflater.end();
+      try {
+        in.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+}
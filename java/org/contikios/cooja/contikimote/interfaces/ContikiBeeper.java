@@ -72,6 +72,7 @@ import org.contikios.cooja.mote.memory.VarMemory;
 public class ContikiBeeper extends Beeper implements ContikiMoteInterface, PolledAfterActiveTicks {
   private Mote mote = null;
   private VarMemory moteMem = null;
+  private VarMemory.Handle simBeeped = null;
   private static Logger logger = Logger.getLogger(ContikiBeeper.class);
 
   /**
@@ -85,10 +86,11 @@ public class ContikiBeeper extends Beeper implements ContikiMoteInterface, Polle
   public ContikiBeeper(Mote mote) {
     this.mote = mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simBeeped = moteMem.handle("simBeeped");
   }
 
   public boolean isBeeping() {
-    return moteMem.getByteValueOf("simBeeped") == 1;
+    return simBeeped.getByte() == 1;
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -96,11 +98,11 @@ public class ContikiBeeper extends Beeper implements ContikiMoteInterface, Polle
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simBeeped") == 1) {
+    if (simBeeped.getByte() == 1) {
       this.setChanged();
       this.notifyObservers(mote);
 
-      moteMem.setByteValueOf("simBeeped", (byte) 0);
+      simBeeped.setByte((byte) 0);
     }
   }
 
@@ -60,6 +60,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  */
 public class ContikiButton extends Button implements ContikiMoteInterface {
   private final VarMemory moteMem;
+  private final VarMemory.Handle simButtonIsDown;
+  private final VarMemory.Handle simButtonIsActive;
+  private final VarMemory.Handle simButtonChanged;
   private final ContikiMote mote;
 
   private static final Logger logger = Logger.getLogger(ContikiButton.class);
@@ -75,6 +78,9 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
     super(mote);
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simButtonIsDown = moteMem.handle("simButtonIsDown");
+    this.simButtonIsActive = moteMem.handle("simButtonIsActive");
+    this.simButtonChanged = moteMem.handle("simButtonChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -83,10 +89,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doReleaseButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 0);
+    simButtonIsDown.setByte((byte) 0);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.getByte() == 1) {
+      simButtonChanged.setByte((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -98,10 +104,10 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   protected void doPressButton() {
-    moteMem.setByteValueOf("simButtonIsDown", (byte) 1);
+    simButtonIsDown.setByte((byte) 1);
 
-    if (moteMem.getByteValueOf("simButtonIsActive") == 1) {
-      moteMem.setByteValueOf("simButtonChanged", (byte) 1);
+    if (simButtonIsActive.getByte() == 1) {
+      simButtonChanged.setByte((byte) 1);
 
       /* If mote is inactive, wake it up */
       mote.requestImmediateWakeup();
@@ -113,7 +119,7 @@ public class ContikiButton extends Button implements ContikiMoteInterface {
 
   @Override
   public boolean isPressed() {
-    return moteMem.getByteValueOf("simButtonIsDown") == 1;
+    return simButtonIsDown.getByte() == 1;
   }
 
 }
@@ -35,6 +35,7 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import javax.swing.*;
 import org.apache.log4j.Logger;
@@ -63,6 +64,10 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * </ul>
  * <p>
  * This observable notifies when the filesystem is used (read/write).
+ * <p>
+ * The filesystem may be kept in a persistent, memory-mapped backing file, see
+ * {@link #setBackingFile(File)}. The file holds the filesystem size (32 bit
+ * little-endian) followed by the filesystem data.
  *
  * @author Fredrik Osterlind
  */
@@ -73,10 +78,17 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
   public int FILESYSTEM_SIZE = 4000; /* Configure CFS size here and in cfs-cooja.c */
   private Mote mote = null;
   private VarMemory moteMem = null;
+  private VarMemory.Handle simCFSChanged = null;
+  private VarMemory.Handle simCFSRead = null;
+  private VarMemory.Handle simCFSWritten = null;
+  private VarMemory.Handle simCFSData = null;
+  private VarMemory.Handle simCFSSize = null;
 
   private int lastRead = 0;
   private int lastWritten = 0;
 
+  private MappedStore backingStore = null;
+
   /**
    * Creates an interface to the filesystem at mote.
    *
@@ -87,6 +99,11 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
   public ContikiCFS(Mote mote) {
     this.mote = mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simCFSChanged = moteMem.handle("simCFSChanged");
+    this.simCFSRead = moteMem.handle("simCFSRead");
+    this.simCFSWritten = moteMem.handle("simCFSWritten");
+    this.simCFSData = moteMem.handle("simCFSData");
+    this.simCFSSize = moteMem.handle("simCFSSize");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -94,13 +111,17 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simCFSChanged") == 1) {
-      lastRead = moteMem.getIntValueOf("simCFSRead");
-      lastWritten = moteMem.getIntValueOf("simCFSWritten");
+    if (simCFSChanged.getByte() == 1) {
+      lastRead = simCFSRead.getInt();
+      lastWritten = simCFSWritten.getInt();
 
-      moteMem.setIntValueOf("simCFSRead", 0);
-      moteMem.setIntValueOf("simCFSWritten", 0);
-      moteMem.setByteValueOf("simCFSChanged", (byte) 0);
+      simCFSRead.setInt(0);
+      simCFSWritten.setInt(0);
+      simCFSChanged.setByte((byte) 0);
+
+      if (backingStore != null && lastWritten > 0) {
+        syncBackingStore();
+      }
 
       this.setChanged();
       this.notifyObservers(mote);
@@ -119,19 +140,78 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
       return false;
     }
 
-    moteMem.setByteArray("simCFSData", data);
-    moteMem.setIntValueOf("simCFSSize", data.length);
+    simCFSData.setBytes(data);
+    simCFSSize.setInt(data.length);
+    if (backingStore != null) {
+      syncBackingStore();
+    }
     return true;
   }
 
+  /**
+   * Keeps the filesystem in a memory-mapped file. An existing file is loaded
+   * into the filesystem, otherwise the file is created from the current
+   * filesystem contents.
+   *
+   * @param file Backing file, or null to stop using a backing file
+   * @return True if operation successful
+   */
+  public boolean setBackingFile(File file) {
+    if (backingStore != null) {
+      backingStore.close();
+      backingStore = null;
+    }
+    if (file == null) {
+      return true;
+    }
+
+    try {
+      backingStore = new MappedStore(file, 4, FILESYSTEM_SIZE);
+    } catch (IOException e) {
+      logger.fatal("Could not map filesystem backing file " + file + ": " + e.getMessage());
+      return false;
+    }
+
+    if (backingStore.isCreated()) {
+      syncBackingStore();
+    } else {
+      int size = Math.max(0, Math.min(backingStore.getHeaderInt(0), FILESYSTEM_SIZE));
+      backingStore.load(simCFSData, FILESYSTEM_SIZE);
+      simCFSSize.setInt(size);
+    }
+    return true;
+  }
+
+  /**
+   * @return Backing file, or null if not used
+   */
+  public File getBackingFile() {
+    return backingStore == null ? null : backingStore.getFile();
+  }
+
+  /**
+   * Returns the filesystem contents stored in the backing file. The buffer
+   * is mapped from the file and is not a copy.
+   *
+   * @return Read-only filesystem data, or null if no backing file is used
+   */
+  public ByteBuffer getBackingData() {
+    return backingStore == null ? null : backingStore.getData();
+  }
+
+  private void syncBackingStore() {
+    backingStore.sync(simCFSData, FILESYSTEM_SIZE);
+    backingStore.setHeaderInt(0, simCFSSize.getInt());
+  }
+
   /**
    * Get filesystem data.
    *
    * @return Filesystem data
    */
   public byte[] getFilesystemData() {
-    int size = moteMem.getIntValueOf("simCFSSize");
-    return moteMem.getByteArray("simCFSData", size);
+    int size = simCFSSize.getInt();
+    return simCFSData.getBytes(size);
   }
 
   /**
@@ -204,10 +284,30 @@ public class ContikiCFS extends MoteInterface implements ContikiMoteInterface, P
   }
 
   public Collection<Element> getConfigXML() {
-    return null;
+    if (backingStore == null) {
+      return null;
+    }
+
+    Vector<Element> config = new Vector<Element>();
+    Element element = new Element("backingfile");
+    File file = mote.getSimulation().getCooja().createPortablePath(backingStore.getFile());
+    element.setText(file.getPath().replace('\\', '/'));
+    config.add(element);
+    return config;
   }
 
   public void setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    for (Element element : configXML) {
+      if (element.getName().equals("backingfile")) {
+        File file = mote.getSimulation().getCooja().restorePortablePath(new File(element.getText()));
+        setBackingFile(file);
+      }
+    }
+  }
+
+  public void removed() {
+    super.removed();
+    setBackingFile(null);
   }
 
   /**
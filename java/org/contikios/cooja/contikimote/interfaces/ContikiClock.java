@@ -77,6 +77,14 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
   private ContikiMote mote;
   private VarMemory moteMem;
 
+  private final VarMemory.Handle simCurrentTime;
+  private final VarMemory.Handle simRtimerCurrentTicks;
+  private final VarMemory.Handle simRtimerPending;
+  private final VarMemory.Handle simRtimerNextExpirationTime;
+  private final VarMemory.Handle simProcessRunValue;
+  private final VarMemory.Handle simEtimerPending;
+  private final VarMemory.Handle simEtimerNextExpirationTime;
+
   private long moteTime; /* Microseconds */
   private long timeDrift; /* Microseconds */
 
@@ -90,6 +98,13 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
     this.simulation = mote.getSimulation();
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    simCurrentTime = moteMem.handle("simCurrentTime");
+    simRtimerCurrentTicks = moteMem.handle("simRtimerCurrentTicks");
+    simRtimerPending = moteMem.handle("simRtimerPending");
+    simRtimerNextExpirationTime = moteMem.handle("simRtimerNextExpirationTime");
+    simProcessRunValue = moteMem.handle("simProcessRunValue");
+    simEtimerPending = moteMem.handle("simEtimerPending");
+    simEtimerNextExpirationTime = moteMem.handle("simEtimerNextExpirationTime");
     timeDrift = 0;
     moteTime = 0;
   }
@@ -101,7 +116,7 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
   public void setTime(long newTime) {
     moteTime = newTime;
     if (moteTime > 0) {
-      moteMem.setIntValueOf("simCurrentTime", (int)(newTime/1000));
+      simCurrentTime.setInt((int)(newTime/1000));
     }
   }
 
@@ -130,33 +145,33 @@ public class ContikiClock extends Clock implements ContikiMoteInterface, PolledB
     /* Update time */
     long currentSimulationTime = simulation.getSimulationTime();
     setTime(currentSimulationTime + timeDrift);
-    moteMem.setInt64ValueOf("simRtimerCurrentTicks", currentSimulationTime);
+    simRtimerCurrentTicks.setInt64(currentSimulationTime);
   }
 
   public void doActionsAfterTick() {
     long currentSimulationTime = mote.getSimulation().getSimulationTime();
 
     /* Always schedule for Rtimer if anything pending */
-    if (moteMem.getIntValueOf("simRtimerPending") != 0) {
-      mote.scheduleNextWakeup(moteMem.getInt64ValueOf("simRtimerNextExpirationTime"));
+    if (simRtimerPending.getInt() != 0) {
+      mote.scheduleNextWakeup(simRtimerNextExpirationTime.getInt64());
     }
 
     /* Request next tick for remaining events / timers */
-    int processRunValue = moteMem.getIntValueOf("simProcessRunValue");
+    int processRunValue = simProcessRunValue.getInt();
     if (processRunValue != 0) {
       /* Handle next Contiki event in one millisecond */
       mote.scheduleNextWakeup(currentSimulationTime + Simulation.MILLISECOND);
       return;
     }
 
-    int etimersPending = moteMem.getIntValueOf("simEtimerPending");
+    int etimersPending = simEtimerPending.getInt();
     if (etimersPending == 0) {
       /* No timers */
       return;
     }
 
     /* Request tick next wakeup time for Etimer */
-    long etimerNextExpirationTime = (long)moteMem.getInt32ValueOf("simEtimerNextExpirationTime") * Simulation.MILLISECOND;
+    long etimerNextExpirationTime = (long)simEtimerNextExpirationTime.getInt32() * Simulation.MILLISECOND;
     long etimerTimeToNextExpiration = etimerNextExpirationTime - moteTime;
     if (etimerTimeToNextExpiration <= 0) {
       /* logger.warn(mote.getID() + ": Event timer already expired, but has been delayed: " + etimerTimeToNextExpiration); */
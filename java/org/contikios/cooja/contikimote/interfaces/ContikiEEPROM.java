@@ -36,6 +36,7 @@ import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import javax.swing.*;
 import org.apache.log4j.Logger;
@@ -64,6 +65,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  * </ul>
  * <p>
  * This observable notifies when the eeprom is used (read/write).
+ * <p>
+ * The EEPROM may be kept in a persistent, memory-mapped image file, see
+ * {@link #setBackingFile(File)}.
  *
  * @author Claes Jakobsson (based on ContikiCFS by Fredrik Osterlind)
  */
@@ -74,10 +78,16 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
   public int EEPROM_SIZE = 1024; /* Configure EEPROM size here and in eeprom.c. Should really be multiple of 16 */
   private Mote mote = null;
   private VarMemory moteMem = null;
+  private VarMemory.Handle simEEPROMChanged = null;
+  private VarMemory.Handle simEEPROMRead = null;
+  private VarMemory.Handle simEEPROMWritten = null;
+  private VarMemory.Handle simEEPROMData = null;
 
   private int lastRead = 0;
   private int lastWritten = 0;
 
+  private MappedStore backingStore = null;
+
   /**
    * Creates an interface to the EEPROM at mote.
    *
@@ -88,6 +98,10 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
   public ContikiEEPROM(Mote mote) {
     this.mote = mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simEEPROMChanged = moteMem.handle("simEEPROMChanged");
+    this.simEEPROMRead = moteMem.handle("simEEPROMRead");
+    this.simEEPROMWritten = moteMem.handle("simEEPROMWritten");
+    this.simEEPROMData = moteMem.handle("simEEPROMData");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -95,13 +109,17 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simEEPROMChanged") == 1) {
-      lastRead = moteMem.getIntValueOf("simEEPROMRead");
-      lastWritten = moteMem.getIntValueOf("simEEPROMWritten");
+    if (simEEPROMChanged.getByte() == 1) {
+      lastRead = simEEPROMRead.getInt();
+      lastWritten = simEEPROMWritten.getInt();
 
-      moteMem.setIntValueOf("simEEPROMRead", 0);
-      moteMem.setIntValueOf("simEEPROMWritten", 0);
-      moteMem.setByteValueOf("simEEPROMChanged", (byte) 0);
+      simEEPROMRead.setInt(0);
+      simEEPROMWritten.setInt(0);
+      simEEPROMChanged.setByte((byte) 0);
+
+      if (backingStore != null && lastWritten > 0) {
+        backingStore.sync(simEEPROMData, EEPROM_SIZE);
+      }
 
       this.setChanged();
       this.notifyObservers(mote);
@@ -120,17 +138,69 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
       return false;
     }
 
-    moteMem.setByteArray("simEEPROMData", data);
+    simEEPROMData.setBytes(data);
+    if (backingStore != null) {
+      backingStore.sync(simEEPROMData, EEPROM_SIZE);
+    }
+    return true;
+  }
+
+  /**
+   * Keeps the EEPROM in a memory-mapped image file. An existing image is
+   * loaded into the EEPROM, otherwise the image is created from the current
+   * EEPROM contents.
+   *
+   * @param file Image file, or null to stop using an image file
+   * @return True if operation successful
+   */
+  public boolean setBackingFile(File file) {
+    if (backingStore != null) {
+      backingStore.close();
+      backingStore = null;
+    }
+    if (file == null) {
+      return true;
+    }
+
+    try {
+      backingStore = new MappedStore(file, 0, EEPROM_SIZE);
+    } catch (IOException e) {
+      logger.fatal("Could not map EEPROM image " + file + ": " + e.getMessage());
+      return false;
+    }
+
+    if (backingStore.isCreated()) {
+      backingStore.sync(simEEPROMData, EEPROM_SIZE);
+    } else {
+      backingStore.load(simEEPROMData, EEPROM_SIZE);
+    }
     return true;
   }
 
+  /**
+   * @return Image file, or null if not used
+   */
+  public File getBackingFile() {
+    return backingStore == null ? null : backingStore.getFile();
+  }
+
+  /**
+   * Returns the EEPROM contents stored in the image file. The buffer is
+   * mapped from the file and is not a copy.
+   *
+   * @return Read-only EEPROM data, or null if no image file is used
+   */
+  public ByteBuffer getBackingData() {
+    return backingStore == null ? null : backingStore.getData();
+  }
+
   /**
    * Get EEPROM data.
    *
    * @return Filesystem data
    */
   public byte[] getEEPROMData() {
-    return moteMem.getByteArray("simEEPROMData", EEPROM_SIZE);
+    return simEEPROMData.getBytes(EEPROM_SIZE);
   }
 
   /**
@@ -275,6 +345,15 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
       Vector<Element> config = new Vector<Element>();
       Element element;
 
+      if (backingStore != null) {
+        /* Contents are kept in image file */
+        element = new Element("backingfile");
+        File file = mote.getSimulation().getCooja().createPortablePath(backingStore.getFile());
+        element.setText(file.getPath().replace('\\', '/'));
+        config.add(element);
+        return config;
+      }
+
       // Infinite boolean
       element = new Element("eeprom");
       element.setText(Base64.getEncoder().encodeToString(getEEPROMData()));
@@ -287,10 +366,18 @@ public class ContikiEEPROM extends MoteInterface implements ContikiMoteInterface
       for (Element element : configXML) {
         if (element.getName().equals("eeprom")) {
           setEEPROMData(Base64.getDecoder().decode(element.getText()));
+        } else if (element.getName().equals("backingfile")) {
+          File file = mote.getSimulation().getCooja().restorePortablePath(new File(element.getText()));
+          setBackingFile(file);
         }
       }
   }
 
+  public void removed() {
+    super.removed();
+    setBackingFile(null);
+  }
+
   /**
    * Opens a file dialog and returns the contents of the selected file or null if dialog aborted.
    *
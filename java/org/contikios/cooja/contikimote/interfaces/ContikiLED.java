@@ -66,6 +66,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
 
   private Mote mote = null;
   private VarMemory moteMem = null;
+  private VarMemory.Handle simLedsValue = null;
   private byte currentLedValue = 0;
 
   private static final byte LEDS_GREEN = 1;
@@ -93,6 +94,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   public ContikiLED(Mote mote) {
     this.mote = mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simLedsValue = moteMem.handle("simLedsValue");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -118,7 +120,7 @@ public class ContikiLED extends LED implements ContikiMoteInterface, PolledAfter
   public void doActionsAfterTick() {
     boolean ledChanged;
 
-    byte newLedsValue = moteMem.getByteValueOf("simLedsValue");
+    byte newLedsValue = simLedsValue.getByte();
     if (newLedsValue != currentLedValue) {
       ledChanged = true;
     } else {
@@ -62,6 +62,9 @@ import org.contikios.cooja.mote.memory.VarMemory;
  */
 public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
   private VarMemory moteMem = null;
+  private VarMemory.Handle simMoteID = null;
+  private VarMemory.Handle simMoteIDChanged = null;
+  private VarMemory.Handle simRandomSeed = null;
   private static Logger logger = Logger.getLogger(ContikiMoteID.class);
 
   private int moteID = 0;
@@ -79,6 +82,9 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
   public ContikiMoteID(Mote mote) {
     this.mote = mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simMoteID = moteMem.handle("simMoteID");
+    this.simMoteIDChanged = moteMem.handle("simMoteIDChanged");
+    this.simRandomSeed = moteMem.handle("simRandomSeed");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -91,9 +97,9 @@ public class ContikiMoteID extends MoteID implements ContikiMoteInterface {
 
   public void setMoteID(int newID) {
     moteID = newID;
-    moteMem.setIntValueOf("simMoteID", moteID);
-    moteMem.setByteValueOf("simMoteIDChanged", (byte) 1);
-    moteMem.setIntValueOf("simRandomSeed", (int) (mote.getSimulation().getRandomSeed() + newID));
+    simMoteID.setInt(moteID);
+    simMoteIDChanged.setByte((byte) 1);
+    simRandomSeed.setInt((int) (mote.getSimulation().getRandomSeed() + newID));
     setChanged();
     notifyObservers();
   }
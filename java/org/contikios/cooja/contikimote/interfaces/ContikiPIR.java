@@ -67,6 +67,8 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
 
   private ContikiMote mote;
   private VarMemory moteMem;
+  private VarMemory.Handle simPirIsActive;
+  private VarMemory.Handle simPirChanged;
 
   /**
    * Creates an interface to the PIR at mote.
@@ -79,6 +81,8 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
   public ContikiPIR(Mote mote) {
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simPirIsActive = moteMem.handle("simPirIsActive");
+    this.simPirChanged = moteMem.handle("simPirChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -97,8 +101,8 @@ public class ContikiPIR extends PIR implements ContikiMoteInterface {
   }
 
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simPirIsActive") == 1) {
-      moteMem.setByteValueOf("simPirChanged", (byte) 1);
+    if (simPirIsActive.getByte() == 1) {
+      simPirChanged.setByte((byte) 1);
 
       mote.requestImmediateWakeup();
     }
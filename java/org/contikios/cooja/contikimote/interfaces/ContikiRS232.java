@@ -30,7 +30,8 @@
 
 package org.contikios.cooja.contikimote.interfaces;
 
-import java.util.Vector;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.contikios.cooja.*;
@@ -39,6 +40,7 @@ import org.contikios.cooja.contikimote.ContikiMoteInterface;
 import org.contikios.cooja.dialogs.SerialUI;
 import org.contikios.cooja.interfaces.PolledAfterActiveTicks;
 import org.contikios.cooja.mote.memory.VarMemory;
+import org.contikios.cooja.util.ByteRingBuffer;
 
 /**
  * Contiki mote serial port and log interfaces.
@@ -70,9 +72,18 @@ public class ContikiRS232 extends SerialUI implements ContikiMoteInterface, Poll
 
   private ContikiMote mote = null;
   private VarMemory moteMem = null;
+  private VarMemory.Handle simLoggedFlag = null;
+  private VarMemory.Handle simLoggedLength = null;
+  private VarMemory.Handle simLoggedData = null;
+  private VarMemory.Handle simSerialReceivingFlag = null;
+  private VarMemory.Handle simSerialReceivingLength = null;
+  private VarMemory.Handle simSerialReceivingData = null;
 
   static final int SERIAL_BUF_SIZE = 16 * 1024; /* rs232.c:40 */
 
+  /* Bytes buffered in Cooja until Contiki has room for them */
+  static final int PENDING_BUF_SIZE = 64 * 1024;
+
   /**
    * Creates an interface to the RS232 at mote.
    *
@@ -84,6 +95,13 @@ public class ContikiRS232 extends SerialUI implements ContikiMoteInterface, Poll
   public ContikiRS232(Mote mote) {
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simLoggedFlag = moteMem.handle("simLoggedFlag");
+    this.simLoggedLength = moteMem.handle("simLoggedLength");
+    this.simLoggedData = moteMem.handle("simLoggedData");
+    this.simSerialReceivingFlag = moteMem.handle("simSerialReceivingFlag");
+    this.simSerialReceivingLength = moteMem.handle("simSerialReceivingLength");
+    this.simSerialReceivingData = moteMem.handle("simSerialReceivingData");
+    this.pendingBytesEvent = createPendingBytesEvent();
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -91,12 +109,12 @@ public class ContikiRS232 extends SerialUI implements ContikiMoteInterface, Poll
   }
 
   public void doActionsAfterTick() {
-    if (moteMem.getByteValueOf("simLoggedFlag") == 1) {
-      int len = moteMem.getIntValueOf("simLoggedLength");
-      byte[] bytes = moteMem.getByteArray("simLoggedData", len);
+    if (simLoggedFlag.getByte() == 1) {
+      int len = simLoggedLength.getInt();
+      byte[] bytes = simLoggedData.getBytes(len);
 
-      moteMem.setByteValueOf("simLoggedFlag", (byte) 0);
-      moteMem.setIntValueOf("simLoggedLength", 0);
+      simLoggedFlag.setByte((byte) 0);
+      simLoggedLength.setInt(0);
 
       for (byte b: bytes) {
         dataReceived(b);
@@ -105,169 +123,124 @@ public class ContikiRS232 extends SerialUI implements ContikiMoteInterface, Poll
   }
 
   public void writeString(String message) {
-    final byte[] dataToAppend = message.getBytes();
-
-    mote.getSimulation().invokeSimulationThread(new Runnable() {
-      public void run() {
-        /* Append to existing buffer */
-        int oldSize = moteMem.getIntValueOf("simSerialReceivingLength");
-        int newSize = oldSize + dataToAppend.length;
-        if (newSize > SERIAL_BUF_SIZE) {
-        	logger.fatal("ContikiRS232: dropping rs232 data #1, buffer full: " + oldSize + " -> " + newSize);
-        	mote.requestImmediateWakeup();
-        	return;
-        }
-        moteMem.setIntValueOf("simSerialReceivingLength", newSize);
-
-        byte[] oldData = moteMem.getByteArray("simSerialReceivingData", oldSize);
-        byte[] newData = new byte[newSize];
-
-        System.arraycopy(oldData, 0, newData, 0, oldData.length);
-        System.arraycopy(dataToAppend, 0, newData, oldSize, dataToAppend.length);
-
-        moteMem.setByteArray("simSerialReceivingData", newData);
-
-        moteMem.setByteValueOf("simSerialReceivingFlag", (byte) 1);
-        mote.requestImmediateWakeup();
-      }
-    });
+    writeArray(message.getBytes());
   }
 
   public Mote getMote() {
     return mote;
   }
 
-  private TimeEvent pendingBytesEvent = null;
-  private Vector<Byte> pendingBytes = new Vector<Byte>();
   public void writeArray(byte[] s) {
-    for (byte b: s) {
-      pendingBytes.add(b);
-    }
+    writeArray(s, 0, s.length);
+  }
 
-    if (pendingBytesEvent != null) {
-      /* Event is already scheduled, no need to reschedule */
-      return;
+  /**
+   * Writes a part of an array to the mote's serial port.
+   * Bytes that do not fit in the pending buffer are dropped.
+   *
+   * @param s Data
+   * @param offset Data offset
+   * @param length Number of bytes
+   */
+  public void writeArray(byte[] s, int offset, int length) {
+    int n = pendingBytes.write(s, offset, length);
+    if (n < length) {
+      dropped(length - n);
     }
+    schedulePendingBytes();
+  }
 
-    pendingBytesEvent = new MoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        ContikiRS232.this.pendingBytesEvent = null;
-        if (pendingBytes.isEmpty()) {
-          return;
-        }
-
-        /* Move bytes from synchronized vector to Contiki buffer */
-        int nrBytes = pendingBytes.size();
-        byte[] dataToAppend = new byte[nrBytes];
-        for (int i=0; i < nrBytes; i++) {
-          dataToAppend[i] = pendingBytes.firstElement();
-          pendingBytes.remove(0);
-        }
-
-        /* Append to existing buffer */
-        int oldSize = moteMem.getIntValueOf("simSerialReceivingLength");
-        int newSize = oldSize + dataToAppend.length;
-        if (newSize > SERIAL_BUF_SIZE) {
-        	logger.fatal("ContikiRS232: dropping rs232 data #2, buffer full: " + oldSize + " -> " + newSize);
-        	mote.requestImmediateWakeup();
-        	return;
-        }
-        moteMem.setIntValueOf("simSerialReceivingLength", newSize);
-
-        byte[] oldData = moteMem.getByteArray("simSerialReceivingData", oldSize);
-        byte[] newData = new byte[newSize];
-
-        System.arraycopy(oldData, 0, newData, 0, oldData.length);
-        System.arraycopy(dataToAppend, 0, newData, oldSize, dataToAppend.length);
-
-        moteMem.setByteArray("simSerialReceivingData", newData);
-
-        moteMem.setByteValueOf("simSerialReceivingFlag", (byte) 1);
-
-        /* Reschedule us if more bytes are available */
-        mote.getSimulation().scheduleEvent(this, t);
-        mote.requestImmediateWakeup();
-      }
-    };
-    mote.getSimulation().invokeSimulationThread(new Runnable() {
-      public void run() {
-        mote.getSimulation().scheduleEvent(
-            pendingBytesEvent,
-            mote.getSimulation().getSimulationTime()
-        );
-      }
-    });
+  /**
+   * Writes the remaining bytes of a buffer to the mote's serial port.
+   * Bytes that do not fit in the pending buffer are dropped.
+   *
+   * @param buffer Data
+   */
+  public void writeBuffer(ByteBuffer buffer) {
+    pendingBytes.write(buffer);
+    if (buffer.hasRemaining()) {
+      dropped(buffer.remaining());
+      buffer.position(buffer.limit());
+    }
+    schedulePendingBytes();
   }
 
   public void writeByte(final byte b) {
-    pendingBytes.add(b);
+    if (!pendingBytes.write(b)) {
+      dropped(1);
+    }
+    schedulePendingBytes();
+  }
 
-    if (pendingBytesEvent != null) {
+  /**
+   * Bytes are never waited for: the writing thread may be the event
+   * dispatch thread or a script, and the simulation may be stopped.
+   */
+  private void dropped(int length) {
+    logger.fatal("ContikiRS232: dropping rs232 data, buffer full: " + length + " bytes");
+  }
+
+  private void schedulePendingBytes() {
+    if (pendingBytesRequested.getAndSet(true)) {
       /* Event is already scheduled, no need to reschedule */
       return;
     }
 
-    pendingBytesEvent = new MoteTimeEvent(mote, 0) {
-      public void execute(long t) {
-        ContikiRS232.this.pendingBytesEvent = null;
-        if (pendingBytes.isEmpty()) {
-          return;
-        }
+    /* Simulation thread: schedule immediately */
+    if (mote.getSimulation().isSimulationThread()) {
+      schedulePendingBytesEvent.run();
+      return;
+    }
+    mote.getSimulation().invokeSimulationThread(schedulePendingBytesEvent);
+  }
 
-        /* Move bytes from synchronized vector to Contiki buffer */
-        int nrBytes = pendingBytes.size();
-        byte[] dataToAppend = new byte[nrBytes];
-        for (int i=0; i < nrBytes; i++) {
-          dataToAppend[i] = pendingBytes.firstElement();
-          pendingBytes.remove(0);
-        }
+  /* Bytes written by any thread, moved to Contiki by the simulation thread */
+  private final ByteRingBuffer pendingBytes = new ByteRingBuffer(PENDING_BUF_SIZE);
 
-        /* Append to existing buffer */
-        int oldSize = moteMem.getIntValueOf("simSerialReceivingLength");
-        int newSize = oldSize + dataToAppend.length;
-        if (newSize > SERIAL_BUF_SIZE) {
-        	logger.fatal("ContikiRS232: dropping rs232 data #3, buffer full: " + oldSize + " -> " + newSize);
-        	mote.requestImmediateWakeup();
-        	return;
-        }
-        moteMem.setIntValueOf("simSerialReceivingLength", newSize);
+  private final AtomicBoolean pendingBytesRequested = new AtomicBoolean(false);
 
-        byte[] oldData = moteMem.getByteArray("simSerialReceivingData", oldSize);
-        byte[] newData = new byte[newSize];
+  private final ByteRingBuffer.Sink receivingDataSink = new ByteRingBuffer.Sink() {
+    public void write(byte[] data, int offset, int length) {
+      /* Append to existing buffer, in place */
+      int oldSize = simSerialReceivingLength.getInt();
+      simSerialReceivingData.setBytes(oldSize, data, offset, length);
+      simSerialReceivingLength.setInt(oldSize + length);
+    }
+  };
 
-        System.arraycopy(oldData, 0, newData, 0, oldData.length);
-        System.arraycopy(dataToAppend, 0, newData, oldSize, dataToAppend.length);
+  private final Runnable schedulePendingBytesEvent = new Runnable() {
+    public void run() {
+      if (pendingBytesEvent.isScheduled()) {
+        return;
+      }
+      mote.getSimulation().scheduleEvent(
+          pendingBytesEvent,
+          mote.getSimulation().getSimulationTime()
+      );
+    }
+  };
 
-        moteMem.setByteArray("simSerialReceivingData", newData);
+  private final TimeEvent pendingBytesEvent;
 
-        moteMem.setByteValueOf("simSerialReceivingFlag", (byte) 1);
+  private TimeEvent createPendingBytesEvent() {
+    return new MoteTimeEvent(mote, 0) {
+      public void execute(long t) {
+        /* Bytes written from now on need a new event */
+        pendingBytesRequested.set(false);
+
+        /* Move bytes from ring buffer to Contiki buffer */
+        int free = SERIAL_BUF_SIZE - simSerialReceivingLength.getInt();
+        if (pendingBytes.drainTo(receivingDataSink, free) > 0) {
+          simSerialReceivingFlag.setByte((byte) 1);
+          mote.requestImmediateWakeup();
+        }
 
-        /* Reschedule us if more bytes are available */
-        mote.getSimulation().scheduleEvent(this, t);
-        mote.requestImmediateWakeup();
+        /* Contiki buffer full: retry once the mote had a chance to read it */
+        if (!pendingBytes.isEmpty() && !pendingBytesRequested.getAndSet(true)) {
+          mote.getSimulation().scheduleEvent(this, t + Simulation.MILLISECOND);
+        }
       }
     };
-
-    /* Simulation thread: schedule immediately */
-    if (mote.getSimulation().isSimulationThread()) {
-    	mote.getSimulation().scheduleEvent(
-    			pendingBytesEvent,
-    			mote.getSimulation().getSimulationTime()
-    			);
-    	return;
-    }
-
-    mote.getSimulation().invokeSimulationThread(new Runnable() {
-    	public void run() {
-    		if (pendingBytesEvent.isScheduled()) {
-    			return;
-    		}
-    		mote.getSimulation().scheduleEvent(
-    				pendingBytesEvent,
-    				mote.getSimulation().getSimulationTime()
-    				);
-    	}
-    });
   }
 
 }
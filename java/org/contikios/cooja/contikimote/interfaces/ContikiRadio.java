@@ -93,6 +93,18 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
   private VarMemory myMoteMemory;
 
+  private final VarMemory.Handle simReceiving;
+  private final VarMemory.Handle simInSize;
+  private final VarMemory.Handle simInDataBuffer;
+  private final VarMemory.Handle simLastPacketTimestamp;
+  private final VarMemory.Handle simOutSize;
+  private final VarMemory.Handle simOutDataBuffer;
+  private final VarMemory.Handle simRadioHWOn;
+  private final VarMemory.Handle simSignalStrength;
+  private final VarMemory.Handle simPower;
+  private final VarMemory.Handle simRadioChannel;
+  private final VarMemory.Handle simLQI;
+
   private static Logger logger = Logger.getLogger(ContikiRadio.class);
 
   /**
@@ -104,6 +116,8 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
   private RadioPacket packetFromMote = null;
 
+  private final CCITT_CRC txCrc = new CCITT_CRC();
+
   private boolean radioOn = true;
 
   private boolean isTransmitting = false;
@@ -135,8 +149,19 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
     this.mote = (ContikiMote) mote;
     this.myMoteMemory = new VarMemory(mote.getMemory());
-
-    radioOn = myMoteMemory.getByteValueOf("simRadioHWOn") == 1;
+    this.simReceiving = myMoteMemory.handle("simReceiving");
+    this.simInSize = myMoteMemory.handle("simInSize");
+    this.simInDataBuffer = myMoteMemory.handle("simInDataBuffer");
+    this.simLastPacketTimestamp = myMoteMemory.handle("simLastPacketTimestamp");
+    this.simOutSize = myMoteMemory.handle("simOutSize");
+    this.simOutDataBuffer = myMoteMemory.handle("simOutDataBuffer");
+    this.simRadioHWOn = myMoteMemory.handle("simRadioHWOn");
+    this.simSignalStrength = myMoteMemory.handle("simSignalStrength");
+    this.simPower = myMoteMemory.handle("simPower");
+    this.simRadioChannel = myMoteMemory.handle("simRadioChannel");
+    this.simLQI = myMoteMemory.handle("simLQI");
+
+    radioOn = simRadioHWOn.getByte() == 1;
   }
 
   /* Contiki mote interface support */
@@ -167,7 +192,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public boolean isReceiving() {
-    return myMoteMemory.getByteValueOf("simReceiving") == 1;
+    return simReceiving.getByte() == 1;
   }
 
   public boolean isInterfered() {
@@ -175,7 +200,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getChannel() {
-    return myMoteMemory.getIntValueOf("simRadioChannel");
+    return simRadioChannel.getInt();
   }
 
   public void signalReceptionStart() {
@@ -185,13 +210,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
       return;
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 1);
+    simReceiving.setByte((byte) 1);
     mote.requestImmediateWakeup();
 
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_STARTED;
 
-    myMoteMemory.setInt64ValueOf("simLastPacketTimestamp", lastEventTime);
+    simLastPacketTimestamp.setInt64(lastEventTime);
 
     this.setChanged();
     this.notifyObservers();
@@ -201,13 +226,20 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     if (isInterfered || packetToMote == null) {
       isInterfered = false;
       packetToMote = null;
-      myMoteMemory.setIntValueOf("simInSize", 0);
+      simInSize.setInt(0);
     } else {
-      myMoteMemory.setIntValueOf("simInSize", packetToMote.getPacketData().length - 2);
-      myMoteMemory.setByteArray("simInDataBuffer", packetToMote.getPacketData());
+      /* Shared packet data is written straight into mote memory */
+      byte[] data = packetToMote.getPacketData();
+      if (simInDataBuffer.getSize() > 0 && data.length > simInDataBuffer.getSize()) {
+        logger.warn("Dropping oversized packet: " + data.length + " > " + simInDataBuffer.getSize());
+        simInSize.setInt(0);
+      } else {
+        simInSize.setInt(data.length - 2);
+        simInDataBuffer.setBytes(0, data, 0, data.length);
+      }
     }
 
-    myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
+    simReceiving.setByte((byte) 0);
     mote.requestImmediateWakeup();
     lastEventTime = mote.getSimulation().getSimulationTime();
     lastEvent = RadioEvent.RECEPTION_FINISHED;
@@ -243,15 +275,15 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
   }
 
   public int getCurrentOutputPowerIndicator() {
-    return myMoteMemory.getByteValueOf("simPower");
+    return simPower.getByte();
   }
 
   public double getCurrentSignalStrength() {
-    return myMoteMemory.getIntValueOf("simSignalStrength");
+    return simSignalStrength.getInt();
   }
 
   public void setCurrentSignalStrength(double signalStrength) {
-    myMoteMemory.setIntValueOf("simSignalStrength", (int) signalStrength);
+    simSignalStrength.setInt((int) signalStrength);
   }
 
   /** Set LQI to a value between 0 and 255.
@@ -265,11 +297,11 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     else if(lqi>0xff) {
       lqi=0xff;
     }
-    myMoteMemory.setIntValueOf("simLQI", lqi);
+    simLQI.setInt(lqi);
   }
 
   public int getLQI(){
-    return myMoteMemory.getIntValueOf("simLQI");
+    return simLQI.getInt();
   }
 
   public Position getPosition() {
@@ -280,13 +312,13 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     long now = mote.getSimulation().getSimulationTime();
 
     /* Check if radio hardware status changed */
-    if (radioOn != (myMoteMemory.getByteValueOf("simRadioHWOn") == 1)) {
+    if (radioOn != (simRadioHWOn.getByte() == 1)) {
       radioOn = !radioOn;
 
       if (!radioOn) {
-        myMoteMemory.setByteValueOf("simReceiving", (byte) 0);
-        myMoteMemory.setIntValueOf("simInSize", 0);
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+        simReceiving.setByte((byte) 0);
+        simInSize.setInt(0);
+        simOutSize.setInt(0);
         isTransmitting = false;
         lastEvent = RadioEvent.HW_OFF;
       } else {
@@ -302,8 +334,8 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* Check if radio output power changed */
-    if (myMoteMemory.getByteValueOf("simPower") != oldOutputPowerIndicator) {
-      oldOutputPowerIndicator = myMoteMemory.getByteValueOf("simPower");
+    if (simPower.getByte() != oldOutputPowerIndicator) {
+      oldOutputPowerIndicator = simPower.getByte();
       lastEvent = RadioEvent.UNKNOWN;
       this.setChanged();
       this.notifyObservers();
@@ -319,7 +351,7 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
 
     /* Ongoing transmission */
     if (isTransmitting && now >= transmissionEndTime) {
-      myMoteMemory.setIntValueOf("simOutSize", 0);
+      simOutSize.setInt(0);
       isTransmitting = false;
       mote.requestImmediateWakeup();
 
@@ -331,19 +363,20 @@ public class ContikiRadio extends Radio implements ContikiMoteInterface, PolledA
     }
 
     /* New transmission */
-    int size = myMoteMemory.getIntValueOf("simOutSize");
+    int size = simOutSize.getInt();
     if (!isTransmitting && size > 0) {
-      packetFromMote = new COOJARadioPacket(myMoteMemory.getByteArray("simOutDataBuffer", size + 2));
-
-      if (packetFromMote.getPacketData() == null || packetFromMote.getPacketData().length == 0) {
-        logger.warn("Skipping zero sized Contiki packet (no buffer)");
-        myMoteMemory.setIntValueOf("simOutSize", 0);
+      if (simOutDataBuffer.getSize() > 0 && size + 2 > simOutDataBuffer.getSize()) {
+        logger.warn("Skipping oversized Contiki packet: " + size);
+        simOutSize.setInt(0);
         mote.requestImmediateWakeup();
         return;
       }
 
-      byte[] data = packetFromMote.getPacketData();
-      CCITT_CRC txCrc = new CCITT_CRC();
+      /* Packet data is shared with all receivers and observers */
+      byte[] data = new byte[size + 2];
+      simOutDataBuffer.getBytes(0, data, 0, size);
+      packetFromMote = new COOJARadioPacket(data);
+
       txCrc.setCRC(0);
       for (int i = 0; i < size; i++) {
         txCrc.addBitrev(data[i]);
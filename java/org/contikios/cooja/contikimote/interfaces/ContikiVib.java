@@ -69,6 +69,8 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
 
   private ContikiMote mote;
   private VarMemory moteMem;
+  private VarMemory.Handle simVibIsActive;
+  private VarMemory.Handle simVibChanged;
 
   /**
    * Creates an interface to the vibration sensor at mote.
@@ -81,6 +83,8 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
   public ContikiVib(Mote mote) {
     this.mote = (ContikiMote) mote;
     this.moteMem = new VarMemory(mote.getMemory());
+    this.simVibIsActive = moteMem.handle("simVibIsActive");
+    this.simVibChanged = moteMem.handle("simVibChanged");
   }
 
   public static String[] getCoreInterfaceDependencies() {
@@ -99,8 +103,8 @@ public class ContikiVib extends MoteInterface implements ContikiMoteInterface {
   }
   
   public void doTriggerChange() { 
-    if (moteMem.getByteValueOf("simVibIsActive") == 1) {
-      moteMem.setByteValueOf("simVibChanged", (byte) 1);
+    if (simVibIsActive.getByte() == 1) {
+      simVibChanged.setByte((byte) 1);
 
       mote.requestImmediateWakeup();
     }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.contikimote.interfaces;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+import org.contikios.cooja.mote.memory.VarMemory;
+
+/**
+ * Persistent backing store of a Contiki storage interface, mapped into
+ * memory from a file.
+ * <p>
+ * The file holds an optional header followed by the storage contents. The
+ * store is updated block-wise: only blocks differing from mote memory are
+ * written, so the operating system writes back only dirty pages. The
+ * interfaces only count written bytes, not where they were written, so
+ * every sync compares the whole store.
+ *
+ * @see ContikiCFS
+ * @see ContikiEEPROM
+ */
+class MappedStore {
+  private static Logger logger = Logger.getLogger(MappedStore.class);
+
+  private final static int BLOCK_SIZE = 64;
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final MappedByteBuffer buffer;
+  private final int headerSize;
+  private final int dataSize;
+  private final boolean created;
+
+  private final byte[] block = new byte[BLOCK_SIZE];
+
+  /**
+   * Opens or creates a backing store file.
+   *
+   * @param file File
+   * @param headerSize Header size in bytes
+   * @param dataSize Storage size in bytes
+   * @throws IOException At failure
+   */
+  MappedStore(File file, int headerSize, int dataSize) throws IOException {
+    this.file = file;
+    this.headerSize = headerSize;
+    this.dataSize = dataSize;
+
+    created = !file.exists() || file.length() == 0;
+    raf = new RandomAccessFile(file, "rw");
+    try {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, headerSize + dataSize);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * @return File
+   */
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * @return True if the file was created, and holds no earlier contents
+   */
+  boolean isCreated() {
+    return created;
+  }
+
+  /**
+   * @return Read-only view of storage contents, without copying
+   */
+  ByteBuffer getData() {
+    ByteBuffer data = buffer.asReadOnlyBuffer();
+    data.position(headerSize);
+    data.limit(headerSize + dataSize);
+    return data.slice();
+  }
+
+  /**
+   * @param offset Header offset
+   * @return 32 bit header value
+   */
+  int getHeaderInt(int offset) {
+    return buffer.getInt(offset);
+  }
+
+  /**
+   * @param offset Header offset
+   * @param value 32 bit header value
+   */
+  void setHeaderInt(int offset, int value) {
+    buffer.putInt(offset, value);
+  }
+
+  /**
+   * Copies storage contents to mote memory.
+   *
+   * @param data Storage variable
+   * @param length Number of bytes
+   */
+  void load(VarMemory.Handle data, int length) {
+    ByteBuffer src = getData();
+    src.limit(Math.min(length, dataSize));
+    data.setBytes(0, src);
+  }
+
+  /**
+   * Copies blocks that differ from mote memory to the store.
+   *
+   * @param data Storage variable
+   * @param length Number of bytes
+   * @return Number of bytes written to the store
+   */
+  int sync(VarMemory.Handle data, int length) {
+    length = Math.min(length, dataSize);
+    int dirty = 0;
+    for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+      int n = Math.min(BLOCK_SIZE, length - offset);
+      data.getBytes(offset, block, 0, n);
+      int pos = headerSize + offset;
+      int i = 0;
+      while (i < n && buffer.get(pos + i) == block[i]) {
+        i++;
+      }
+      if (i == n) {
+        continue;
+      }
+      for (; i < n; i++) {
+        buffer.put(pos + i, block[i]);
+      }
+      dirty += n;
+    }
+    return dirty;
+  }
+
+  /**
+   * Writes the store to disk and closes the file.
+   */
+  void close() {
+    buffer.force();
+    try {
+      raf.close();
+    } catch (IOException e) {
+      logger.warn("Could not close backing file " + file + ": " + e.getMessage());
+    }
+  }
+}
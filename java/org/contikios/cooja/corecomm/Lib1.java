@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2006, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.corecomm;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.contikios.cooja.CoreComm;
+
+/**
+ * Precompiled core communicator binding the JNI functions of a Contiki
+ * library built with CLASSNAME=Lib1.
+ * <p>
+ * All Contiki libraries are built for this class. Each library is loaded by
+ * its own copy of the class, defined by a separate class loader, which lets
+ * JNI bind the native methods of every copy to its own library.
+ *
+ * @see CoreComm
+ */
+public class Lib1 extends CoreComm {
+
+  /**
+   * Loads library libFile.
+   *
+   * @see CoreComm
+   * @param libFile Library file
+   */
+  public Lib1(File libFile) {
+    System.load(libFile.getAbsolutePath());
+    init();
+  }
+
+  public native void tick();
+  public native void init();
+  public native void setReferenceAddress(int addr);
+  public native void getMemory(int rel_addr, int length, byte[] mem);
+  public native void setMemory(int rel_addr, int length, byte[] mem);
+
+  public ByteBuffer getMemoryBuffer(int rel_addr, int length) {
+    try {
+      return getMemoryBuffer0(rel_addr, length);
+    } catch (UnsatisfiedLinkError e) {
+      /* Library built without cooja_memory_buffer.c */
+      return null;
+    }
+  }
+  private native ByteBuffer getMemoryBuffer0(int rel_addr, int length);
+}
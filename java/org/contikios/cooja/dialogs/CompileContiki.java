@@ -33,6 +33,7 @@ package org.contikios.cooja.dialogs;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
@@ -41,6 +42,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
@@ -63,6 +66,12 @@ import org.contikios.cooja.contikimote.ContikiMoteType;
 public class CompileContiki {
   private static Logger logger = Logger.getLogger(CompileContiki.class);
 
+  /**
+   * C source compiled into every Contiki library, exporting direct memory
+   * buffers to {@link org.contikios.cooja.CoreComm#getMemoryBuffer(int, int)}.
+   */
+  public static final String MEMORY_BUFFER_SOURCE = "cooja_memory_buffer.c";
+
   /**
    * Executes a Contiki compilation command.
    *
@@ -420,7 +429,7 @@ public class CompileContiki {
    * @param mapFile Output map file, "mtype123.map"
    * @param libFile Output JNI library, "mtype123.cooja"
    * @param archiveFile Output archive, "mtype123.a"
-   * @param javaClass Java JNI library class, "Lib4"
+   * @param javaClass Java JNI library class, "Lib1"
    * @return Compilation environment
    * @throws Exception At errors
    */
@@ -518,19 +527,61 @@ public class CompileContiki {
     return env.toArray(new String[0][0]);
   }
 
-	public static void redefineCOOJASources(MoteType moteType, String[][] env) {
+  /**
+   * Writes the memory buffer source to given directory.
+   *
+   * @param directory Output directory
+   * @throws IOException At errors
+   * @see #MEMORY_BUFFER_SOURCE
+   */
+  private static void createMemoryBufferSource(File directory) throws IOException {
+    File sourceFile = new File(directory, MEMORY_BUFFER_SOURCE);
+    if (!directory.exists()) {
+      directory.mkdirs();
+    }
+
+    InputStream input;
+    if ((new File(MEMORY_BUFFER_SOURCE)).exists()) {
+      input = new FileInputStream(MEMORY_BUFFER_SOURCE);
+    } else {
+      /* Try JAR, or fail */
+      input = CompileContiki.class.getResourceAsStream('/' + MEMORY_BUFFER_SOURCE);
+      if (input == null) {
+        throw new FileNotFoundException(MEMORY_BUFFER_SOURCE + " not found");
+      }
+    }
+    try {
+      Files.copy(input, sourceFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      input.close();
+    }
+  }
+
+	public static void redefineCOOJASources(MoteType moteType, String[][] env) throws IOException {
     if (moteType == null || env == null) {
     	return;
     }
 
+    String sources = "";
+    String dirs = "";
+
+    /* Cooja's own sources, next to the library */
+    File source = moteType.getContikiSourceFile();
+    if (source != null) {
+    	File dir = new File(
+    			source.getAbsoluteFile().getParentFile(),
+    			Cooja.getExternalToolsSetting("PATH_CONTIKI_NG_BUILD_DIR", "build/cooja"));
+    	createMemoryBufferSource(dir);
+    	sources += MEMORY_BUFFER_SOURCE + " ";
+    	dirs += dir.getPath() + " ";
+    }
+
     /* Check whether cooja projects include additional sources */
     String[] coojaSources = moteType.getConfig().getStringArrayValue(ContikiMoteType.class, "C_SOURCES");
     if (coojaSources == null) {
-    	return;
+    	coojaSources = new String[0];
     }
 
-    String sources = "";
-    String dirs = "";
     for (String s: coojaSources) {
     	if (s.trim().isEmpty()) {
     		continue;
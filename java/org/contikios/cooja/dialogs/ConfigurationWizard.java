@@ -270,12 +270,10 @@ public class ConfigurationWizard extends JDialog {
     while (value.equals(OPTION_RUN_TEST)) {
       value = showStepDialog(
           parent,
-          "Generates, compiles and loads a CoreComm Java class.\n" +
+          "Loads the precompiled CoreComm Java class.\n" +
           "A CoreComm instance loads the Contiki library created in step 2.\n",
           testDescription,
-          new String[] {
-              "PATH_JAVAC"
-          },
+          null,
           true
       );
 
@@ -544,7 +542,7 @@ public class ConfigurationWizard extends JDialog {
   }
 
   public static boolean performCompileCTest(MessageListUI testOutput, PrintStream normalStream, PrintStream errorStream) {
-    javaLibraryName = "LibTest" + testCounter;
+    javaLibraryName = CoreComm.getAvailableClassName();
     cLibraryName = "libtest" + testCounter;
     cLibrarySourceFile = new File(ContikiMoteType.tempOutputDirectory, cLibraryName + ".c");
     cLibraryFile = new File(ContikiMoteType.tempOutputDirectory, cLibraryName + ContikiMoteType.librarySuffix);
@@ -653,28 +651,10 @@ public class ConfigurationWizard extends JDialog {
     }
     dummyStream.close();
 
-    testOutput.addMessage("### Generating Java library source: org/contikios/cooja/corecomm/" + javaLibraryName + ".java");
-    try {
-      CoreComm.generateLibSourceFile(javaLibraryName);
-    } catch (MoteTypeCreationException e) {
-      e.printStackTrace(errorStream);
-      testOutput.addMessage("### Error: " + e.getMessage(), MessageList.ERROR);
-      return false;
-    }
-
-    testOutput.addMessage("### Compiling Java library source: org/contikios/cooja/corecomm/" + javaLibraryName + ".java");
-    try {
-      CoreComm.compileSourceFile(javaLibraryName);
-    } catch (MoteTypeCreationException e) {
-      e.printStackTrace(errorStream);
-      testOutput.addMessage("### Error: " + e.getMessage(), MessageList.ERROR);
-      return false;
-    }
-
     testOutput.addMessage("### Loading Java library class: org/contikios/cooja/corecomm/" + javaLibraryName);
     Class<? extends CoreComm> javaLibraryClass = null;
     try {
-      javaLibraryClass = (Class<? extends CoreComm>) CoreComm.loadClassFile(javaLibraryName);
+      javaLibraryClass = (Class<? extends CoreComm>) CoreComm.loadIsolatedClassFile(javaLibraryName);
     } catch (MoteTypeCreationException e) {
       e.printStackTrace(errorStream);
       testOutput.addMessage("### Error: " + e.getMessage(), MessageList.ERROR);
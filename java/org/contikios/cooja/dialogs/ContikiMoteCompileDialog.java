@@ -42,6 +42,7 @@ import java.util.ArrayList;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -294,6 +295,38 @@ public class ContikiMoteCompileDialog extends AbstractCompileDialog {
     netStackBox.add(netStackComboBox);
     netStackHeaderBox.setVisible((NetworkStack)netStackComboBox.getSelectedItem() == NetworkStack.MANUAL);
 
+    /* Private library per mote */
+    final JCheckBox perMoteLibraryCheckBox = new JCheckBox(
+        "Load private library copy per mote", ((ContikiMoteType)moteType).isPerMoteLibrary());
+    perMoteLibraryCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+    perMoteLibraryCheckBox.setToolTipText("Keeps mote state resident in native memory, at the cost of one loaded library per mote");
+    perMoteLibraryCheckBox.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        ((ContikiMoteType)moteType).setPerMoteLibrary(perMoteLibraryCheckBox.isSelected());
+      }
+    });
+
+    /* Run until idle */
+    final JCheckBox runUntilIdleCheckBox = new JCheckBox(
+        "Handle all runnable events per tick", ((ContikiMoteType)moteType).isRunUntilIdle());
+    runUntilIdleCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+    runUntilIdleCheckBox.setToolTipText("Runs Contiki processes at the same simulated time until idle, waiting on a timer, or performing I/O");
+    runUntilIdleCheckBox.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        ((ContikiMoteType)moteType).setRunUntilIdle(runUntilIdleCheckBox.isSelected());
+      }
+    });
+
+    /* Copy-on-write memory */
+    final JCheckBox copyOnWriteCheckBox = new JCheckBox(
+        "Share unmodified memory between motes", ((ContikiMoteType)moteType).isCopyOnWriteMemory());
+    copyOnWriteCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+    copyOnWriteCheckBox.setToolTipText("Reduces memory usage of large networks, at the cost of comparing memory pages each tick");
+    copyOnWriteCheckBox.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        ((ContikiMoteType)moteType).setCopyOnWriteMemory(copyOnWriteCheckBox.isSelected());
+      }
+    });
 
     /* Advanced tab */
     Box box = Box.createVerticalBox();
@@ -301,6 +334,9 @@ public class ContikiMoteCompileDialog extends AbstractCompileDialog {
     /*box.add(symbolsCheckBox);*/
     box.add(netStackBox);
     box.add(netStackHeaderBox);
+    box.add(perMoteLibraryCheckBox);
+    box.add(runUntilIdleCheckBox);
+    box.add(copyOnWriteCheckBox);
     box.add(Box.createVerticalGlue());
     JPanel container = new JPanel(new BorderLayout());
     container.add(BorderLayout.NORTH, box);
@@ -80,6 +80,7 @@ public class CreateSimDialog extends JDialog {
 
   private JFormattedTextField randomSeed, delayedStartup;
   private JCheckBox randomSeedGenerated;
+  private JCheckBox adaptiveQuanta;
 
   private JTextField title;
   private JComboBox radioMediumBox;
@@ -142,6 +143,9 @@ public class CreateSimDialog extends JDialog {
     // Set delayed mote startup time (ms)
     dialog.delayedStartup.setValue(new Long(simulation.getDelayedMoteStartupTime()/Simulation.MILLISECOND));
 
+    // Set adaptive execution quanta
+    dialog.adaptiveQuanta.setSelected(simulation.getAdaptiveExecutionQuanta());
+
 
     // Set position and focus of dialog
     dialog.setLocationRelativeTo(parent);
@@ -323,6 +327,21 @@ public class CreateSimDialog extends JDialog {
     advancedBox.add(horizBox);
     advancedBox.add(Box.createVerticalStrut(5));
 
+    horizBox = Box.createHorizontalBox();
+    horizBox.setMaximumSize(new Dimension(Integer.MAX_VALUE,LABEL_HEIGHT));
+    horizBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+    label = new JLabel("Adaptive execution quanta");
+    label.setPreferredSize(new Dimension(LABEL_WIDTH,LABEL_HEIGHT));
+    adaptiveQuanta = new JCheckBox();
+    adaptiveQuanta.setToolTipText("Execute emulated motes in longer quanta while their radio is powered down. Output timing may be up to 1 ms early.");
+
+    horizBox.add(label);
+    horizBox.add(Box.createHorizontalStrut(144));
+    horizBox.add(adaptiveQuanta);
+
+    advancedBox.add(horizBox);
+    advancedBox.add(Box.createVerticalStrut(5));
+
     vertBox.add(advancedBox);
     vertBox.add(Box.createVerticalGlue());
 
@@ -364,6 +383,7 @@ public class CreateSimDialog extends JDialog {
       }
 
       mySimulation.setDelayedMoteStartupTime((int) ((Number) delayedStartup.getValue()).intValue()*Simulation.MILLISECOND);
+      mySimulation.setAdaptiveExecutionQuanta(adaptiveQuanta.isSelected());
 
       dispose();
     }
@@ -29,6 +29,7 @@
 
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -43,6 +44,7 @@ public class ArrayMemory implements MemoryInterface {
   private final long startAddress;
   private final MemoryLayout layout;
   private final boolean readonly;
+  private final boolean bigEndian;
   private final Map<String, Symbol> symbols;// XXX Allow to set symbols
 
   public ArrayMemory(long address, int size, MemoryLayout layout, Map<String, Symbol> symbols) {
@@ -58,6 +60,7 @@ public class ArrayMemory implements MemoryInterface {
     this.layout = layout;
     this.memory = memory;
     this.readonly = readonly;
+    this.bigEndian = layout.order == ByteOrder.BIG_ENDIAN;
     this.symbols = symbols;
   }
 
@@ -66,6 +69,13 @@ public class ArrayMemory implements MemoryInterface {
     return memory;
   }
 
+  /**
+   * @return True if writes to this memory fail
+   */
+  public boolean isReadonly() {
+    return readonly;
+  }
+
   /**
    * XXX Should addr be the relative or the absolute address of this section?
    * @param addr
@@ -82,10 +92,58 @@ public class ArrayMemory implements MemoryInterface {
 
   @Override
   public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
+    checkWritable();
+    System.arraycopy(data, 0, memory, (int) (addr - startAddress), data.length);
+  }
+
+  private void checkWritable() throws MoteMemoryException {
     if (readonly) {
       throw new MoteMemoryException("Invalid write access for readonly memory");
     }
-    System.arraycopy(data, 0, memory, (int) (addr - startAddress), data.length);
+  }
+
+  @Override
+  public byte getInt8(long addr) {
+    return memory[(int) (addr - startAddress)];
+  }
+
+  @Override
+  public short getInt16(long addr) {
+    return ByteArrayViews.getShort(memory, (int) (addr - startAddress), bigEndian);
+  }
+
+  @Override
+  public int getInt32(long addr) {
+    return ByteArrayViews.getInt(memory, (int) (addr - startAddress), bigEndian);
+  }
+
+  @Override
+  public long getInt64(long addr) {
+    return ByteArrayViews.getLong(memory, (int) (addr - startAddress), bigEndian);
+  }
+
+  @Override
+  public void setInt8(long addr, byte value) throws MoteMemoryException {
+    checkWritable();
+    memory[(int) (addr - startAddress)] = value;
+  }
+
+  @Override
+  public void setInt16(long addr, short value) throws MoteMemoryException {
+    checkWritable();
+    ByteArrayViews.putShort(memory, (int) (addr - startAddress), value, bigEndian);
+  }
+
+  @Override
+  public void setInt32(long addr, int value) throws MoteMemoryException {
+    checkWritable();
+    ByteArrayViews.putInt(memory, (int) (addr - startAddress), value, bigEndian);
+  }
+
+  @Override
+  public void setInt64(long addr, long value) throws MoteMemoryException {
+    checkWritable();
+    ByteArrayViews.putLong(memory, (int) (addr - startAddress), value, bigEndian);
   }
 
   @Override
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed size integer access to byte arrays in either byte order,
+ * using var handle views so that no intermediate buffers are created.
+ */
+final class ByteArrayViews {
+
+  private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private ByteArrayViews() {
+  }
+
+  static short getShort(byte[] array, int index, boolean bigEndian) {
+    return bigEndian ? (short) SHORT_BE.get(array, index) : (short) SHORT_LE.get(array, index);
+  }
+
+  static int getInt(byte[] array, int index, boolean bigEndian) {
+    return bigEndian ? (int) INT_BE.get(array, index) : (int) INT_LE.get(array, index);
+  }
+
+  static long getLong(byte[] array, int index, boolean bigEndian) {
+    return bigEndian ? (long) LONG_BE.get(array, index) : (long) LONG_LE.get(array, index);
+  }
+
+  static void putShort(byte[] array, int index, short value, boolean bigEndian) {
+    if (bigEndian) {
+      SHORT_BE.set(array, index, value);
+    } else {
+      SHORT_LE.set(array, index, value);
+    }
+  }
+
+  static void putInt(byte[] array, int index, int value, boolean bigEndian) {
+    if (bigEndian) {
+      INT_BE.set(array, index, value);
+    } else {
+      INT_LE.set(array, index, value);
+    }
+  }
+
+  static void putLong(byte[] array, int index, long value, boolean bigEndian) {
+    if (bigEndian) {
+      LONG_BE.set(array, index, value);
+    } else {
+      LONG_LE.set(array, index, value);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * A memory that is backed by a (typically direct) byte buffer.
+ * <p>
+ * Used to access native memory in place, such as the data and bss sections
+ * of a loaded Contiki library. Modifications are visible to the buffer owner
+ * immediately and vice versa.
+ */
+public class ByteBufferMemory implements MemoryInterface {
+
+  private final ByteBuffer buffer;
+  private final long startAddress;
+  private final MemoryLayout layout;
+  private final Map<String, Symbol> symbols;
+
+  /**
+   * @param address Start address of memory
+   * @param layout Memory layout
+   * @param buffer Buffer backing this memory, from position 0 to its capacity
+   * @param symbols Symbols in memory
+   */
+  public ByteBufferMemory(long address, MemoryLayout layout, ByteBuffer buffer, Map<String, Symbol> symbols) {
+    this.startAddress = address;
+    this.layout = layout;
+    this.buffer = buffer.duplicate().order(layout.order);
+    this.symbols = symbols;
+  }
+
+  /**
+   * Returns a new view of the buffer backing this memory.
+   * The view is positioned at the start of memory and ordered by memory layout.
+   *
+   * @return Buffer view
+   */
+  public ByteBuffer getBuffer() {
+    return buffer.duplicate().order(layout.order);
+  }
+
+  /**
+   * Returns a copy of the entire memory, as memory is not backed by an array.
+   *
+   * @return Memory byte array
+   */
+  @Override
+  public byte[] getMemory() throws MoteMemoryException {
+    return getMemorySegment(startAddress, buffer.capacity());
+  }
+
+  @Override
+  public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException {
+    byte[] ret = new byte[size];
+    ByteBuffer b = buffer.duplicate();
+    b.position((int) (addr - startAddress));
+    b.get(ret);
+    return ret;
+  }
+
+  @Override
+  public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
+    ByteBuffer b = buffer.duplicate();
+    b.position((int) (addr - startAddress));
+    b.put(data);
+  }
+
+  @Override
+  public byte getInt8(long addr) {
+    return buffer.get((int) (addr - startAddress));
+  }
+
+  @Override
+  public short getInt16(long addr) {
+    return buffer.getShort((int) (addr - startAddress));
+  }
+
+  @Override
+  public int getInt32(long addr) {
+    return buffer.getInt((int) (addr - startAddress));
+  }
+
+  @Override
+  public long getInt64(long addr) {
+    return buffer.getLong((int) (addr - startAddress));
+  }
+
+  @Override
+  public void setInt8(long addr, byte value) {
+    buffer.put((int) (addr - startAddress), value);
+  }
+
+  @Override
+  public void setInt16(long addr, short value) {
+    buffer.putShort((int) (addr - startAddress), value);
+  }
+
+  @Override
+  public void setInt32(long addr, int value) {
+    buffer.putInt((int) (addr - startAddress), value);
+  }
+
+  @Override
+  public void setInt64(long addr, long value) {
+    buffer.putLong((int) (addr - startAddress), value);
+  }
+
+  @Override
+  public void clearMemory() {
+    for (int i = 0; i < buffer.capacity(); i++) {
+      buffer.put(i, (byte) 0x00);
+    }
+  }
+
+  @Override
+  public long getStartAddr() {
+    return startAddress;
+  }
+
+  @Override
+  public int getTotalSize() {
+    return buffer.capacity();
+  }
+
+  @Override
+  public Map<String, Symbol> getSymbolMap() {
+    return symbols;
+  }
+
+  @Override
+  public MemoryLayout getLayout() {
+    return layout;
+  }
+
+  @Override
+  public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public boolean removeSegmentMonitor(long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+}
@@ -31,7 +31,6 @@ package org.contikios.cooja.mote.memory;
 
 import org.contikios.cooja.mote.memory.MemoryInterface.SegmentMonitor;
 import org.contikios.cooja.mote.memory.MemoryInterface.SegmentMonitor.EventType;
-import org.contikios.cooja.mote.memory.MemoryLayout.DataType;
 
 /**
  * Represents memory that can be accessed with address and size informations.
@@ -59,7 +58,7 @@ public abstract class Memory {
    * @return 8 bit value read from address
    */
   public byte getInt8ValueOf(long addr) {
-    return memIntf.getMemorySegment(addr, DataType.INT8.getSize())[0];
+    return memIntf.getInt8(addr);
   }
 
   /**
@@ -69,9 +68,7 @@ public abstract class Memory {
    * @return 16 bit value read from address
    */
   public short getInt16ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT16.getSize())).getInt16();
+    return memIntf.getInt16(addr);
   }
 
   /**
@@ -81,9 +78,7 @@ public abstract class Memory {
    * @return 32 bit value read from address
    */
   public int getInt32ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT32.getSize())).getInt32();
+    return memIntf.getInt32(addr);
   }
 
   /**
@@ -93,9 +88,7 @@ public abstract class Memory {
    * @return 64 bit value read from address
    */
   public long getInt64ValueOf(long addr) {
-    return MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            memIntf.getMemorySegment(addr, DataType.INT64.getSize())).getInt64();
+    return memIntf.getInt64(addr);
   }
 
   // -- Get compiler-dependent types
@@ -106,7 +99,7 @@ public abstract class Memory {
    * @return byte read from address
    */
   public byte getByteValueOf(long addr) {
-    return memIntf.getMemorySegment(addr, DataType.BYTE.getSize())[0];
+    return memIntf.getInt8(addr);
   }
 
   /**
@@ -116,7 +109,7 @@ public abstract class Memory {
    * @return short read from address
    */
   public short getShortValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, 2)).getShort();
+    return memIntf.getInt16(addr);
   }
 
   /**
@@ -128,17 +121,25 @@ public abstract class Memory {
    * @return integer read from address
    */
   public int getIntValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, memIntf.getLayout().intSize)).getInt();
+    if (memIntf.getLayout().intSize == 2) {
+      return memIntf.getInt16(addr);
+    }
+    return memIntf.getInt32(addr);
   }
 
   /**
    * Read long from address.
+   * <p>
+   * Note: Size of long depends on platform type.
    *
    * @param addr Address to read from
    * @return long read from address
    */
   public long getLongValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, 4)).getLong();
+    if (memIntf.getLayout().longSize == 8) {
+      return memIntf.getInt64(addr);
+    }
+    return memIntf.getInt32(addr);
   }
 
   /**
@@ -150,7 +151,15 @@ public abstract class Memory {
    * @return pointer read from address
    */
   public long getAddrValueOf(long addr) {
-    return MemoryBuffer.wrap(memIntf.getLayout(), memIntf.getMemorySegment(addr, memIntf.getLayout().addrSize)).getAddr();
+    switch (memIntf.getLayout().addrSize) {
+      case 2:
+        return memIntf.getInt16(addr);
+      case 8:
+        return memIntf.getInt64(addr);
+      case 4:
+      default:
+        return memIntf.getInt32(addr);
+    }
   }
 
   /**
@@ -173,7 +182,7 @@ public abstract class Memory {
    * @param value 8 bit value to write
    */
   public void setInt8ValueOf(long addr, byte value) {
-    memIntf.setMemorySegment(addr, new byte[]{value});
+    memIntf.setInt8(addr, value);
   }
 
   /**
@@ -183,9 +192,7 @@ public abstract class Memory {
    * @param value 16 bit value to write
    */
   public void setInt16ValueOf(long addr, short value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            new byte[DataType.INT16.getSize()]).putShort(value).getBytes());
+    memIntf.setInt16(addr, value);
   }
 
   /**
@@ -195,9 +202,7 @@ public abstract class Memory {
    * @param value 32 bit value to write
    */
   public void setInt32ValueOf(long addr, int value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            new byte[DataType.INT32.getSize()]).putInt(value).getBytes());
+    memIntf.setInt32(addr, value);
   }
 
   /**
@@ -207,9 +212,7 @@ public abstract class Memory {
    * @param value 64 bit value to write
    */
   public void setInt64ValueOf(long addr, long value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(
-            memIntf.getLayout(),
-            new byte[DataType.INT64.getSize()]).putLong(value).getBytes());
+    memIntf.setInt64(addr, value);
   }
 
   // -- Set compiler-dependent types
@@ -220,7 +223,7 @@ public abstract class Memory {
    * @param value byte to write
    */
   public void setByteValueOf(long addr, byte value) {
-    memIntf.setMemorySegment(addr, new byte[]{value});
+    memIntf.setInt8(addr, value);
   }
 
   /**
@@ -230,7 +233,7 @@ public abstract class Memory {
    * @param value short to write
    */
   public void setShortValueOf(long addr, short value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(memIntf.getLayout(), new byte[2]).putShort(value).getBytes());
+    memIntf.setInt16(addr, value);
   }
 
   /**
@@ -242,17 +245,27 @@ public abstract class Memory {
    * @param value integer to write
    */
   public void setIntValueOf(long addr, int value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(memIntf.getLayout(), new byte[memIntf.getLayout().intSize]).putInt(value).getBytes());
+    if (memIntf.getLayout().intSize == 2) {
+      memIntf.setInt16(addr, (short) value);
+    } else {
+      memIntf.setInt32(addr, value);
+    }
   }
 
   /**
    * Write long to address.
+   * <p>
+   * Note: Size of long depends on platform type.
    *
    * @param addr Address to write to
    * @param value long to write
    */
   public void setLongValueOf(long addr, long value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(memIntf.getLayout(), new byte[4]).putLong(value).getBytes());
+    if (memIntf.getLayout().longSize == 8) {
+      memIntf.setInt64(addr, value);
+    } else {
+      memIntf.setInt32(addr, (int) value);
+    }
   }
 
   /**
@@ -264,7 +277,18 @@ public abstract class Memory {
    * @param value pointer to write
    */
   public void setAddrValueOf(long addr, long value) {
-    memIntf.setMemorySegment(addr, MemoryBuffer.wrap(memIntf.getLayout(), new byte[memIntf.getLayout().addrSize]).putAddr(value).getBytes());
+    switch (memIntf.getLayout().addrSize) {
+      case 2:
+        memIntf.setInt16(addr, (short) value);
+        break;
+      case 8:
+        memIntf.setInt64(addr, value);
+        break;
+      case 4:
+      default:
+        memIntf.setInt32(addr, (int) value);
+        break;
+    }
   }
 
   /**
@@ -28,6 +28,7 @@
  */
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -35,6 +36,11 @@ import java.util.Map;
  * 
  * Allows reading and writing memory, obtaining symbol information
  * and provides some basic inforation about size, layout, etc.
+ * <p>
+ * The fixed size integer accessors use the byte order of the memory layout.
+ * Their default implementations go through the segment methods; memories
+ * that can access their storage directly should override them to avoid
+ * allocating a segment array for every access.
  *
  * @author Enrico Jorns
  */
@@ -113,6 +119,86 @@ public interface MemoryInterface {
    */
   void setMemorySegment(long addr, byte[] data) throws MoteMemoryException;
 
+  /**
+   * Reads 8 bit integer from memory.
+   *
+   * @param addr Address to read from
+   * @return 8 bit value read from address
+   */
+  default byte getInt8(long addr) throws MoteMemoryException {
+    return getMemorySegment(addr, 1)[0];
+  }
+
+  /**
+   * Reads 16 bit integer from memory.
+   *
+   * @param addr Address to read from
+   * @return 16 bit value read from address
+   */
+  default short getInt16(long addr) throws MoteMemoryException {
+    return ByteBuffer.wrap(getMemorySegment(addr, 2)).order(getLayout().order).getShort();
+  }
+
+  /**
+   * Reads 32 bit integer from memory.
+   *
+   * @param addr Address to read from
+   * @return 32 bit value read from address
+   */
+  default int getInt32(long addr) throws MoteMemoryException {
+    return ByteBuffer.wrap(getMemorySegment(addr, 4)).order(getLayout().order).getInt();
+  }
+
+  /**
+   * Reads 64 bit integer from memory.
+   *
+   * @param addr Address to read from
+   * @return 64 bit value read from address
+   */
+  default long getInt64(long addr) throws MoteMemoryException {
+    return ByteBuffer.wrap(getMemorySegment(addr, 8)).order(getLayout().order).getLong();
+  }
+
+  /**
+   * Writes 8 bit integer to memory.
+   *
+   * @param addr Address to write to
+   * @param value 8 bit value to write
+   */
+  default void setInt8(long addr, byte value) throws MoteMemoryException {
+    setMemorySegment(addr, new byte[]{value});
+  }
+
+  /**
+   * Writes 16 bit integer to memory.
+   *
+   * @param addr Address to write to
+   * @param value 16 bit value to write
+   */
+  default void setInt16(long addr, short value) throws MoteMemoryException {
+    setMemorySegment(addr, ByteBuffer.allocate(2).order(getLayout().order).putShort(value).array());
+  }
+
+  /**
+   * Writes 32 bit integer to memory.
+   *
+   * @param addr Address to write to
+   * @param value 32 bit value to write
+   */
+  default void setInt32(long addr, int value) throws MoteMemoryException {
+    setMemorySegment(addr, ByteBuffer.allocate(4).order(getLayout().order).putInt(value).array());
+  }
+
+  /**
+   * Writes 64 bit integer to memory.
+   *
+   * @param addr Address to write to
+   * @param value 64 bit value to write
+   */
+  default void setInt64(long addr, long value) throws MoteMemoryException {
+    setMemorySegment(addr, ByteBuffer.allocate(8).order(getLayout().order).putLong(value).array());
+  }
+
   /**
    * Clears the memory.
    */
@@ -84,6 +84,7 @@ public class MemoryLayout {
   public final ByteOrder order;
   public final int addrSize;
   public final int intSize;
+  public final int longSize;
   public final int WORD_SIZE;
   private boolean aligned = true;
 
@@ -109,10 +110,25 @@ public class MemoryLayout {
    * @param sizeofInt
    */
   public MemoryLayout(ByteOrder order, int wordsize, int sizeofInt, int sizeofPointer) {
+    this(order, wordsize, sizeofInt, sizeofPointer, Math.max(4, sizeofPointer));
+  }
+
+  /**
+   * Creates new MemoryLayout instance.
+   *
+   * @param order either ByteOrder.BIG_ENDIAN, or ByteOrder.LITTLE_ENDIAN
+   * @param wordsize should be one of ARCH_8BIT, ARCH_16BIT, ARCH_32BIT,
+   * ARCH_64BIT
+   * @param sizeofInt
+   * @param sizeofPointer
+   * @param sizeofLong size of C long, 4 or 8
+   */
+  public MemoryLayout(ByteOrder order, int wordsize, int sizeofInt, int sizeofPointer, int sizeofLong) {
     this.order = order;
     this.WORD_SIZE = wordsize;
     this.intSize = sizeofInt;
     this.addrSize = sizeofPointer;
+    this.longSize = sizeofLong;
     DataType.INT.setSize(this.intSize);
     DataType.POINTER.setSize(this.addrSize);
   }
@@ -123,10 +139,15 @@ public class MemoryLayout {
    * @return MemoryLayout for the running jvm.
    */
   public static MemoryLayout getNative() {
+    int wordsize = Integer.parseInt(System.getProperty("sun.arch.data.model")) / 8;
+    /* 64 bit Windows keeps long at 32 bit (LLP64) */
+    boolean llp64 = System.getProperty("os.name").startsWith("Windows");
     return new MemoryLayout(
             ByteOrder.nativeOrder(),
-            Integer.parseInt(System.getProperty("sun.arch.data.model")) / 8,
-            Integer.SIZE / 8);
+            wordsize,
+            Integer.SIZE / 8,
+            wordsize,
+            llp64 ? 4 : Math.max(4, wordsize));
   }
 
   /**
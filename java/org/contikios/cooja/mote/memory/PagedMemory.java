@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.mote.memory;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * A memory split into fixed-size pages, that shares unmodified pages with
+ * the memory it was created from.
+ * <p>
+ * Pages are copied on first write (copy-on-write), so many memories created
+ * from the same template only hold the pages they have modified.
+ * Pages of the template must never be modified while shared.
+ */
+public class PagedMemory implements MemoryInterface {
+
+  /** Default page size in bytes */
+  public static final int DEFAULT_PAGE_SIZE = 256;
+
+  private final long startAddress;
+  private final int size;
+  private final MemoryLayout layout;
+  private final Map<String, Symbol> symbols;
+  private final int pageSize;
+  private final boolean bigEndian;
+
+  private final byte[][] pages;
+  /* True for pages private to this memory */
+  private final boolean[] owned;
+
+  /**
+   * Creates a memory holding a copy of given data. All pages are considered
+   * shared, and will be copied on first write.
+   *
+   * @param address Start address of memory
+   * @param layout Memory layout
+   * @param data Initial memory contents
+   * @param symbols Symbols in memory
+   * @param pageSize Page size in bytes
+   */
+  public PagedMemory(long address, MemoryLayout layout, byte[] data, Map<String, Symbol> symbols, int pageSize) {
+    this.startAddress = address;
+    this.size = data.length;
+    this.layout = layout;
+    this.symbols = symbols;
+    this.pageSize = pageSize;
+    this.bigEndian = layout.order == ByteOrder.BIG_ENDIAN;
+
+    int nrPages = (size + pageSize - 1) / pageSize;
+    pages = new byte[nrPages][];
+    owned = new boolean[nrPages];
+    for (int i = 0; i < nrPages; i++) {
+      pages[i] = Arrays.copyOfRange(data, i * pageSize, Math.min(size, (i + 1) * pageSize));
+    }
+  }
+
+  /**
+   * Creates a memory sharing all pages of given memory.
+   *
+   * @param template Memory to share pages with
+   */
+  public PagedMemory(PagedMemory template) {
+    this.startAddress = template.startAddress;
+    this.size = template.size;
+    this.layout = template.layout;
+    this.symbols = template.symbols;
+    this.pageSize = template.pageSize;
+    this.bigEndian = template.bigEndian;
+    this.pages = template.pages.clone();
+    this.owned = new boolean[pages.length];
+  }
+
+  /**
+   * @return Page size in bytes
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @return Number of pages private to this memory
+   */
+  public int getNumberOfOwnedPages() {
+    int n = 0;
+    for (boolean o : owned) {
+      if (o) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private byte[] getWritablePage(int idx) {
+    if (!owned[idx]) {
+      pages[idx] = pages[idx].clone();
+      owned[idx] = true;
+    }
+    return pages[idx];
+  }
+
+  /**
+   * Copies memory contents to given array.
+   *
+   * @param dst Destination array, at least memory size long
+   */
+  public void copyTo(byte[] dst) {
+    for (int i = 0; i < pages.length; i++) {
+      System.arraycopy(pages[i], 0, dst, i * pageSize, pages[i].length);
+    }
+  }
+
+  /**
+   * Copies a part of memory contents to given array.
+   *
+   * @param offset Offset in memory
+   * @param dst Destination array
+   * @param dstOffset Offset in destination array
+   * @param length Number of bytes
+   */
+  public void copyTo(int offset, byte[] dst, int dstOffset, int length) {
+    int done = 0;
+    while (done < length) {
+      int idx = (offset + done) / pageSize;
+      int off = (offset + done) % pageSize;
+      int n = Math.min(length - done, pages[idx].length - off);
+      System.arraycopy(pages[idx], off, dst, dstOffset + done, n);
+      done += n;
+    }
+  }
+
+  /**
+   * Updates memory from given array. Only pages that differ are written,
+   * so unchanged shared pages stay shared.
+   *
+   * @param src Source array, at least memory size long
+   * @return Number of written pages
+   */
+  public int update(byte[] src) {
+    int written = 0;
+    for (int i = 0; i < pages.length; i++) {
+      byte[] page = pages[i];
+      int from = i * pageSize;
+      if (Arrays.equals(page, 0, page.length, src, from, from + page.length)) {
+        continue;
+      }
+      System.arraycopy(src, from, getWritablePage(i), 0, page.length);
+      written++;
+    }
+    return written;
+  }
+
+  /**
+   * Updates memory from given array, like {@link #update(byte[])}, and marks
+   * the changed blocks of given size.
+   *
+   * @param src Source array, at least memory size long
+   * @param changed Set of changed block indices, or null
+   * @param blockSize Block size in bytes
+   * @return Number of written pages
+   */
+  public int update(byte[] src, BitSet changed, int blockSize) {
+    if (changed == null) {
+      return update(src);
+    }
+    int written = 0;
+    for (int i = 0; i < pages.length; i++) {
+      byte[] page = pages[i];
+      int from = i * pageSize;
+      int to = from + page.length;
+      if (Arrays.equals(page, 0, page.length, src, from, to)) {
+        continue;
+      }
+      for (int pos = from; pos < to; ) {
+        int end = Math.min(to, (pos / blockSize + 1) * blockSize);
+        if (!Arrays.equals(pages[i], pos - from, end - from, src, pos, end)) {
+          System.arraycopy(src, pos, getWritablePage(i), pos - from, end - pos);
+          changed.set(pos / blockSize);
+        }
+        pos = end;
+      }
+      written++;
+    }
+    return written;
+  }
+
+  /**
+   * Returns a copy of the entire memory, as memory is not backed by one array.
+   *
+   * @return Memory byte array
+   */
+  @Override
+  public byte[] getMemory() throws MoteMemoryException {
+    byte[] data = new byte[size];
+    copyTo(data);
+    return data;
+  }
+
+  @Override
+  public byte[] getMemorySegment(long addr, int size) throws MoteMemoryException {
+    byte[] ret = new byte[size];
+    int pos = (int) (addr - startAddress);
+    int done = 0;
+    while (done < size) {
+      int idx = (pos + done) / pageSize;
+      int off = (pos + done) % pageSize;
+      int n = Math.min(size - done, pages[idx].length - off);
+      System.arraycopy(pages[idx], off, ret, done, n);
+      done += n;
+    }
+    return ret;
+  }
+
+  @Override
+  public void setMemorySegment(long addr, byte[] data) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    int done = 0;
+    while (done < data.length) {
+      int idx = (pos + done) / pageSize;
+      int off = (pos + done) % pageSize;
+      int n = Math.min(data.length - done, pages[idx].length - off);
+      if (!owned[idx] && Arrays.equals(pages[idx], off, off + n, data, done, done + n)) {
+        /* Unchanged, keep sharing page */
+        done += n;
+        continue;
+      }
+      System.arraycopy(data, done, getWritablePage(idx), off, n);
+      done += n;
+    }
+  }
+
+  /* Values crossing a page boundary use the segment based defaults */
+  private boolean inOnePage(int pos, int size) {
+    return pos % pageSize + size <= pageSize;
+  }
+
+  @Override
+  public byte getInt8(long addr) {
+    int pos = (int) (addr - startAddress);
+    return pages[pos / pageSize][pos % pageSize];
+  }
+
+  @Override
+  public short getInt16(long addr) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 2)) {
+      return MemoryInterface.super.getInt16(addr);
+    }
+    return ByteArrayViews.getShort(pages[pos / pageSize], pos % pageSize, bigEndian);
+  }
+
+  @Override
+  public int getInt32(long addr) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 4)) {
+      return MemoryInterface.super.getInt32(addr);
+    }
+    return ByteArrayViews.getInt(pages[pos / pageSize], pos % pageSize, bigEndian);
+  }
+
+  @Override
+  public long getInt64(long addr) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 8)) {
+      return MemoryInterface.super.getInt64(addr);
+    }
+    return ByteArrayViews.getLong(pages[pos / pageSize], pos % pageSize, bigEndian);
+  }
+
+  @Override
+  public void setInt8(long addr, byte value) {
+    int pos = (int) (addr - startAddress);
+    int idx = pos / pageSize;
+    if (!owned[idx] && pages[idx][pos % pageSize] == value) {
+      return;
+    }
+    getWritablePage(idx)[pos % pageSize] = value;
+  }
+
+  @Override
+  public void setInt16(long addr, short value) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 2)) {
+      MemoryInterface.super.setInt16(addr, value);
+      return;
+    }
+    int idx = pos / pageSize;
+    if (!owned[idx] && ByteArrayViews.getShort(pages[idx], pos % pageSize, bigEndian) == value) {
+      return;
+    }
+    ByteArrayViews.putShort(getWritablePage(idx), pos % pageSize, value, bigEndian);
+  }
+
+  @Override
+  public void setInt32(long addr, int value) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 4)) {
+      MemoryInterface.super.setInt32(addr, value);
+      return;
+    }
+    int idx = pos / pageSize;
+    if (!owned[idx] && ByteArrayViews.getInt(pages[idx], pos % pageSize, bigEndian) == value) {
+      return;
+    }
+    ByteArrayViews.putInt(getWritablePage(idx), pos % pageSize, value, bigEndian);
+  }
+
+  @Override
+  public void setInt64(long addr, long value) throws MoteMemoryException {
+    int pos = (int) (addr - startAddress);
+    if (!inOnePage(pos, 8)) {
+      MemoryInterface.super.setInt64(addr, value);
+      return;
+    }
+    int idx = pos / pageSize;
+    if (!owned[idx] && ByteArrayViews.getLong(pages[idx], pos % pageSize, bigEndian) == value) {
+      return;
+    }
+    ByteArrayViews.putLong(getWritablePage(idx), pos % pageSize, value, bigEndian);
+  }
+
+  @Override
+  public void clearMemory() {
+    for (int i = 0; i < pages.length; i++) {
+      Arrays.fill(getWritablePage(i), (byte) 0x00);
+    }
+  }
+
+  @Override
+  public long getStartAddr() {
+    return startAddress;
+  }
+
+  @Override
+  public int getTotalSize() {
+    return size;
+  }
+
+  @Override
+  public Map<String, Symbol> getSymbolMap() {
+    return symbols;
+  }
+
+  @Override
+  public MemoryLayout getLayout() {
+    return layout;
+  }
+
+  @Override
+  public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public boolean removeSegmentMonitor(long address, int size, SegmentMonitor monitor) {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+}
@@ -28,8 +28,12 @@
 
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,6 +48,19 @@ import org.apache.log4j.Logger;
  * Implements MemoryInterface by forwarding calls to available sections or returning
  * an error if no section is available.
  *
+ * <p>
+ * Segment monitors are polled for writes after each tick, see
+ * {@link #pollForMemoryChanges()}. Reads through this memory and its
+ * variable handles are reported to READ monitors immediately; reads by the
+ * simulated system itself cannot be observed and are not reported.
+ * <p>
+ * While write monitors exist, or changes are tracked on request, writes
+ * through this memory and its variable handles, and section updates from the
+ * simulated system, mark the changed pages of {@link #CHANGE_PAGE_SIZE}
+ * bytes. Sections accessed in place by the simulated system
+ * ({@link ByteBufferMemory}) are not updated through this memory; their
+ * changes are found by comparing page snapshots instead.
+ *
  * @author Fredrik Osterlind
  * @author Enrico Jorns
  */
@@ -53,6 +70,15 @@ public class SectionMoteMemory implements MemoryInterface {
 
   private Map<String, MemoryInterface> sections = new HashMap<>();
 
+  /* Sections sorted by start address, rebuilt when sections are added */
+  private MemoryInterface[] sortedSections = new MemoryInterface[0];
+  private long[] sectionStarts = new long[0];
+  private long[] sectionEnds = new long[0];
+  private int totalSize = 0;
+
+  /* Index of section of last lookup */
+  private int lastIndex = 0;
+
   private final Map<String, Symbol> symbols;
   private MemoryLayout memLayout;
   private long startAddr = Long.MAX_VALUE;
@@ -91,13 +117,15 @@ public class SectionMoteMemory implements MemoryInterface {
                 section.getStartAddr()));
         return false;
       }
-      /* Min start address is main start address */
-      startAddr = sec.getStartAddr() < startAddr ? sec.getStartAddr() : startAddr;
-      /* Layout is last layout. XXX Check layout consistency? */
-      memLayout = section.getLayout();
     }
 
+    /* Min start address is main start address */
+    startAddr = section.getStartAddr() < startAddr ? section.getStartAddr() : startAddr;
+    /* Layout is last layout. XXX Check layout consistency? */
+    memLayout = section.getLayout();
+
     sections.put(name, section);
+    updateSectionIndex();
     if (section.getSymbolMap() != null) {
       for (String s : section.getSymbolMap().keySet()) {
         // XXX how to handle double names here?
@@ -130,14 +158,102 @@ public class SectionMoteMemory implements MemoryInterface {
    * @return memory section
    */
   public MemoryInterface getSection(String name) {
-    for (String memsec : sections.keySet()) {
-      if (memsec.equals(name)) {
-        return sections.get(name);
+    MemoryInterface section = sections.get(name);
+    if (section == null) {
+      logger.warn("Section '" + name + "' not found");
+    }
+    return section;
+  }
+
+  /**
+   * Returns memory section containing given address.
+   *
+   * @param address Address
+   * @return memory section, or null if address is not part of any section
+   */
+  public MemoryInterface getSectionAt(long address) {
+    return findSection(address, 1);
+  }
+
+  /**
+   * Returns the memory section containing the whole given address range.
+   *
+   * @param address Start address
+   * @param size Size of range
+   * @return memory section, or null if no single section contains the range
+   */
+  private MemoryInterface findSection(long address, int size) {
+    int idx = findSectionIndex(address, size);
+    return idx < 0 ? null : sortedSections[idx];
+  }
+
+  /**
+   * @return Index of sorted section containing the whole given address
+   * range, or -1 if no single section contains the range
+   */
+  private int findSectionIndex(long address, int size) {
+    long[] starts = sectionStarts;
+    long[] ends = sectionEnds;
+    long end = address + Math.max(size, 1);
+
+    int idx = lastIndex;
+    if (idx < starts.length && address >= starts[idx] && end <= ends[idx]) {
+      return idx;
+    }
+
+    /* Last section starting at or before address */
+    int lo = 0;
+    int hi = starts.length - 1;
+    idx = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (starts[mid] <= address) {
+        idx = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
       }
     }
+    if (idx < 0 || end > ends[idx]) {
+      return -1;
+    }
 
-    logger.warn("Section '" + name + "' not found");
-    return null;
+    lastIndex = idx;
+    return idx;
+  }
+
+  /**
+   * Rebuilds the sorted section index and cached totals.
+   */
+  private void updateSectionIndex() {
+    MemoryInterface[] sorted = sections.values().toArray(new MemoryInterface[0]);
+    Arrays.sort(sorted, new Comparator<MemoryInterface>() {
+      @Override
+      public int compare(MemoryInterface a, MemoryInterface b) {
+        return Long.compare(a.getStartAddr(), b.getStartAddr());
+      }
+    });
+    long[] starts = new long[sorted.length];
+    long[] ends = new long[sorted.length];
+    int total = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      starts[i] = sorted[i].getStartAddr();
+      ends[i] = starts[i] + sorted[i].getTotalSize();
+      total += sorted[i].getTotalSize();
+    }
+    BitSet[] changed = new BitSet[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      changed[i] = new BitSet((sorted[i].getTotalSize() + CHANGE_PAGE_SIZE - 1) / CHANGE_PAGE_SIZE);
+    }
+    sectionStarts = starts;
+    sectionEnds = ends;
+    sortedSections = sorted;
+    changedPages = changed;
+    totalSize = total;
+    lastIndex = 0;
+    if (!polledMemories.isEmpty()) {
+      updateMonitoredPages();
+    }
   }
 
   /**
@@ -145,7 +261,7 @@ public class SectionMoteMemory implements MemoryInterface {
    * @return All memory sections
    */
   public Map<String, MemoryInterface> getSections() {
-    return sections;
+    return Collections.unmodifiableMap(sections);
   }
 
   /**
@@ -179,14 +295,11 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public void clearMemory() {
     sections.clear();
+    updateSectionIndex();
   }
 
   @Override
   public int getTotalSize() {
-    int totalSize = 0;
-    for (MemoryInterface section : sections.values()) {
-      totalSize += section.getTotalSize();
-    }
     return totalSize;
   }
 
@@ -206,10 +319,13 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public byte[] getMemorySegment(long address, int size) throws MoteMemoryException {
 
-    for (MemoryInterface section : sections.values()) {
-      if (includesAddr(section, address) && includesAddr(section, address + size - 1)) {
-        return section.getMemorySegment(address, size);
+    MemoryInterface section = findSection(address, size);
+    if (section != null) {
+      byte[] data = section.getMemorySegment(address, size);
+      if (readMonitors > 0) {
+        notifyRead(address, size);
       }
+      return data;
     }
 
     throw new MoteMemoryException(
@@ -227,22 +343,102 @@ public class SectionMoteMemory implements MemoryInterface {
   @Override
   public void setMemorySegment(long address, byte[] data) throws MoteMemoryException {
 
-    for (MemoryInterface section : sections.values()) {
-      if (inSection(section, address, data.length)) {
-        section.setMemorySegment(address, data);
-        if (DEBUG) {
-          logger.debug(String.format(
-                  "Wrote memory segment [0x%x,0x%x]",
-                  address, address + data.length - 1));
-        }
-        return;
+    MemoryInterface section = findSection(address, data.length);
+    if (section != null) {
+      section.setMemorySegment(address, data);
+      if (trackChanges) {
+        markChanged(address, data.length);
+      }
+      if (DEBUG) {
+        logger.debug(String.format(
+                "Wrote memory segment [0x%x,0x%x]",
+                address, address + data.length - 1));
       }
+      return;
     }
     throw new MoteMemoryException(
             "Writing memory segment [0x%x,0x%x] failed: No section available",
             address, address + data.length - 1);
   }
 
+  private MemoryInterface getSectionFor(long address, int size) throws MoteMemoryException {
+    MemoryInterface section = findSection(address, size);
+    if (section == null) {
+      throw new MoteMemoryException(
+              "Accessing memory [0x%x,0x%x] failed: No section available",
+              address, address + size - 1);
+    }
+    return section;
+  }
+
+  @Override
+  public byte getInt8(long address) throws MoteMemoryException {
+    byte value = getSectionFor(address, 1).getInt8(address);
+    if (readMonitors > 0) {
+      notifyRead(address, 1);
+    }
+    return value;
+  }
+
+  @Override
+  public short getInt16(long address) throws MoteMemoryException {
+    short value = getSectionFor(address, 2).getInt16(address);
+    if (readMonitors > 0) {
+      notifyRead(address, 2);
+    }
+    return value;
+  }
+
+  @Override
+  public int getInt32(long address) throws MoteMemoryException {
+    int value = getSectionFor(address, 4).getInt32(address);
+    if (readMonitors > 0) {
+      notifyRead(address, 4);
+    }
+    return value;
+  }
+
+  @Override
+  public long getInt64(long address) throws MoteMemoryException {
+    long value = getSectionFor(address, 8).getInt64(address);
+    if (readMonitors > 0) {
+      notifyRead(address, 8);
+    }
+    return value;
+  }
+
+  @Override
+  public void setInt8(long address, byte value) throws MoteMemoryException {
+    getSectionFor(address, 1).setInt8(address, value);
+    if (trackChanges) {
+      markChanged(address, 1);
+    }
+  }
+
+  @Override
+  public void setInt16(long address, short value) throws MoteMemoryException {
+    getSectionFor(address, 2).setInt16(address, value);
+    if (trackChanges) {
+      markChanged(address, 2);
+    }
+  }
+
+  @Override
+  public void setInt32(long address, int value) throws MoteMemoryException {
+    getSectionFor(address, 4).setInt32(address, value);
+    if (trackChanges) {
+      markChanged(address, 4);
+    }
+  }
+
+  @Override
+  public void setInt64(long address, long value) throws MoteMemoryException {
+    getSectionFor(address, 8).setInt64(address, value);
+    if (trackChanges) {
+      markChanged(address, 8);
+    }
+  }
+
   @Override
   public long getStartAddr() {
     return startAddr;
@@ -260,8 +456,22 @@ public class SectionMoteMemory implements MemoryInterface {
 
   @Override
   public boolean addSegmentMonitor(SegmentMonitor.EventType flag, long address, int size, SegmentMonitor monitor) {
-    PolledMemorySegments t = new PolledMemorySegments(monitor, address, size);
+    MemoryInterface section = findSection(address, size);
+    if (section == null) {
+      throw new MoteMemoryException(
+              "Monitoring memory segment [0x%x,0x%x] failed: No section available",
+              address, address + size - 1);
+    }
+
+    PolledMemorySegments t = new PolledMemorySegments(flag, monitor, section, address, size);
     polledMemories.add(t);
+    if (t.reads) {
+      readMonitors++;
+    }
+    if (t.writes) {
+      writeMonitors++;
+    }
+    updateMonitoredPages();
     return true;
   }
 
@@ -272,6 +482,13 @@ public class SectionMoteMemory implements MemoryInterface {
         continue;
       }
       polledMemories.remove(mcm);
+      if (mcm.reads) {
+        readMonitors--;
+      }
+      if (mcm.writes) {
+        writeMonitors--;
+      }
+      updateMonitoredPages();
       return true;
     }
     return false;
@@ -295,10 +512,317 @@ public class SectionMoteMemory implements MemoryInterface {
     return clone;
   }
 
-  private ArrayList<PolledMemorySegments> polledMemories = new ArrayList<PolledMemorySegments>();
+  /** Granularity of change tracking [bytes] */
+  public static final int CHANGE_PAGE_SIZE = 64;
+
+  private final ArrayList<PolledMemorySegments> polledMemories = new ArrayList<PolledMemorySegments>();
+  private PolledMemorySegments[] polledArray = new PolledMemorySegments[0];
+  private MemorySnapshot[] monitoredPages = new MemorySnapshot[0];
+  private int readMonitors = 0;
+  private int writeMonitors = 0;
+  private boolean notifyingRead = false;
+
+  /* Pages changed since the last poll, per sorted section */
+  private BitSet[] changedPages = new BitSet[0];
+  private int changeTrackers = 0;
+  private boolean trackChanges = false;
+
+  /**
+   * Starts tracking changed pages, for example for recording memory after
+   * every tick. Calls must be paired with {@link #stopTrackingChanges()}.
+   * Changes already made are not marked.
+   */
+  public void startTrackingChanges() {
+    changeTrackers++;
+    updateTrackChanges();
+  }
+
+  /**
+   * Stops tracking changed pages, as requested by
+   * {@link #startTrackingChanges()}.
+   */
+  public void stopTrackingChanges() {
+    changeTrackers--;
+    updateTrackChanges();
+  }
+
+  private void updateTrackChanges() {
+    boolean track = changeTrackers > 0 || writeMonitors > 0;
+    if (track && !trackChanges) {
+      for (BitSet changed : changedPages) {
+        changed.clear();
+      }
+    }
+    trackChanges = track;
+  }
+
+  /**
+   * @param section Memory section
+   * @return True if changes of given section are marked on its pages
+   */
+  public boolean isTrackingChanges(MemoryInterface section) {
+    return trackChanges && !(section instanceof ByteBufferMemory);
+  }
+
+  /**
+   * Returns the next changed page of a section, as marked since the last
+   * poll. Page i covers the bytes at offsets [i, i + 1) *
+   * {@link #CHANGE_PAGE_SIZE} of the section.
+   *
+   * @param section Memory section
+   * @param page First page to check
+   * @return Index of changed page, or -1 if there is none
+   * @see #isTrackingChanges(MemoryInterface)
+   */
+  public int nextChangedPage(MemoryInterface section, int page) {
+    for (int i = 0; i < sortedSections.length; i++) {
+      if (sortedSections[i] == section) {
+        return changedPages[i].nextSetBit(page);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Marks the pages of given segment as changed, if changes are tracked.
+   *
+   * @param address Start address of segment
+   * @param size Size of segment
+   */
+  void markChanged(long address, int size) {
+    if (!trackChanges || size <= 0) {
+      return;
+    }
+    int idx = findSectionIndex(address, size);
+    if (idx < 0) {
+      return;
+    }
+    int offset = (int) (address - sectionStarts[idx]);
+    changedPages[idx].set(offset / CHANGE_PAGE_SIZE, (offset + size - 1) / CHANGE_PAGE_SIZE + 1);
+  }
+
+  /**
+   * Updates a section with its contents in the simulated system. While
+   * changes are tracked, only pages that differ are written and marked as
+   * changed.
+   *
+   * @param section Memory section
+   * @param src Section contents, at least section size long
+   */
+  public void updateSection(MemoryInterface section, byte[] src) {
+    BitSet changed = null;
+    if (trackChanges) {
+      for (int i = 0; i < sortedSections.length; i++) {
+        if (sortedSections[i] == section) {
+          changed = changedPages[i];
+        }
+      }
+    }
+    int size = section.getTotalSize();
+
+    if (section instanceof PagedMemory) {
+      ((PagedMemory) section).update(src, changed, CHANGE_PAGE_SIZE);
+      return;
+    }
+    if (!(section instanceof ArrayMemory)) {
+      section.setMemorySegment(section.getStartAddr(), Arrays.copyOf(src, size));
+      if (changed != null) {
+        changed.set(0, (size + CHANGE_PAGE_SIZE - 1) / CHANGE_PAGE_SIZE);
+      }
+      return;
+    }
+    byte[] dst = section.getMemory();
+    if (changed == null) {
+      System.arraycopy(src, 0, dst, 0, size);
+      return;
+    }
+    for (int off = 0; off < size; off += CHANGE_PAGE_SIZE) {
+      int n = Math.min(CHANGE_PAGE_SIZE, size - off);
+      if (Arrays.equals(dst, off, off + n, src, off, off + n)) {
+        continue;
+      }
+      System.arraycopy(src, off, dst, off, n);
+      changed.set(off / CHANGE_PAGE_SIZE);
+    }
+  }
+
+  /**
+   * Checks monitored memory segments for changes, and notifies write
+   * monitors of changed segments. Clears all changed pages afterwards.
+   * <p>
+   * Only segments on changed pages are compared with their snapshot from the
+   * previous poll. Pages of sections accessed in place are compared with
+   * page snapshots. No memory is allocated.
+   */
   public void pollForMemoryChanges() {
-    for (PolledMemorySegments mem: polledMemories.toArray(new PolledMemorySegments[0])) {
-      mem.notifyIfChanged();
+    if (writeMonitors > 0) {
+      boolean anyDirty = false;
+      for (MemorySnapshot page : monitoredPages) {
+        page.dirty = page.update();
+        anyDirty |= page.dirty;
+      }
+      for (BitSet changed : changedPages) {
+        anyDirty |= !changed.isEmpty();
+      }
+      if (anyDirty) {
+        for (PolledMemorySegments mem: polledArray) {
+          if (mem.writes && mem.isOnDirtyPage()) {
+            mem.notifyIfChanged();
+          }
+        }
+      }
+    }
+
+    if (trackChanges) {
+      for (BitSet changed : changedPages) {
+        changed.clear();
+      }
+    }
+  }
+
+  /**
+   * Reports a read of given segment that bypassed this memory, such as by a
+   * {@link VarMemory.Handle}, to read monitors.
+   *
+   * @param address Start address of segment
+   * @param size Size of segment
+   */
+  void reportRead(long address, int size) {
+    if (readMonitors > 0) {
+      notifyRead(address, size);
+    }
+  }
+
+  /**
+   * Notifies read monitors of a Java-side read of given segment.
+   */
+  private void notifyRead(long address, int size) {
+    if (notifyingRead) {
+      /* Reads by monitors themselves are not reported */
+      return;
+    }
+    notifyingRead = true;
+    try {
+      for (PolledMemorySegments mem: polledArray) {
+        if (mem.reads && address < mem.address + mem.size && mem.address < address + size) {
+          mem.mm.memoryChanged(this, SegmentMonitor.EventType.READ, Math.max(address, mem.address));
+        }
+      }
+    } finally {
+      notifyingRead = false;
+    }
+  }
+
+  /**
+   * Recreates the page snapshots covering write monitors of sections
+   * accessed in place, and finds the changed pages of other sections.
+   */
+  private void updateMonitoredPages() {
+    polledArray = polledMemories.toArray(new PolledMemorySegments[0]);
+    updateTrackChanges();
+
+    HashMap<MemoryInterface, HashMap<Long, MemorySnapshot>> pagesBySection = new HashMap<>();
+    ArrayList<MemorySnapshot> pages = new ArrayList<>();
+    for (PolledMemorySegments mem: polledArray) {
+      if (!mem.writes) {
+        continue;
+      }
+      mem.changed = null;
+      for (int i = 0; i < sortedSections.length; i++) {
+        if (sortedSections[i] == mem.section) {
+          mem.changed = changedPages[i];
+        }
+      }
+      long sectionStart = mem.section.getStartAddr();
+      mem.firstPage = (int) ((mem.address - sectionStart) / CHANGE_PAGE_SIZE);
+      mem.lastPage = (int) ((mem.address + mem.size - 1 - sectionStart) / CHANGE_PAGE_SIZE);
+      if (!(mem.section instanceof ByteBufferMemory)) {
+        continue;
+      }
+
+      HashMap<Long, MemorySnapshot> sectionPages = pagesBySection.get(mem.section);
+      if (sectionPages == null) {
+        sectionPages = new HashMap<>();
+        pagesBySection.put(mem.section, sectionPages);
+      }
+      long sectionEnd = sectionStart + mem.section.getTotalSize();
+      mem.pages = new MemorySnapshot[mem.lastPage - mem.firstPage + 1];
+      for (long p = mem.firstPage; p <= mem.lastPage; p++) {
+        MemorySnapshot page = sectionPages.get(p);
+        if (page == null) {
+          long start = sectionStart + p * CHANGE_PAGE_SIZE;
+          long end = Math.min(start + CHANGE_PAGE_SIZE, sectionEnd);
+          page = new MemorySnapshot(mem.section, start, (int) (end - start));
+          sectionPages.put(p, page);
+          pages.add(page);
+        }
+        mem.pages[(int) (p - mem.firstPage)] = page;
+      }
+    }
+    monitoredPages = pages.toArray(new MemorySnapshot[0]);
+  }
+
+  /**
+   * Copy of a memory range, compared against its section without allocating
+   * memory.
+   */
+  private static class MemorySnapshot {
+    private final MemoryInterface section;
+    private final long address;
+    private final int offset;
+    private final byte[] copy;
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    boolean dirty = false;
+
+    MemorySnapshot(MemoryInterface section, long address, int size) {
+      this.section = section;
+      this.address = address;
+      this.offset = (int) (address - section.getStartAddr());
+      this.copy = new byte[size];
+      if (section instanceof ArrayMemory) {
+        array = section.getMemory();
+        buffer = null;
+      } else if (section instanceof ByteBufferMemory) {
+        array = null;
+        buffer = ((ByteBufferMemory) section).getBuffer();
+      } else {
+        array = null;
+        buffer = null;
+      }
+      update();
+    }
+
+    /**
+     * Updates snapshot from section.
+     *
+     * @return True if memory changed since last update
+     */
+    boolean update() {
+      if (array != null) {
+        if (Arrays.equals(array, offset, offset + copy.length, copy, 0, copy.length)) {
+          return false;
+        }
+        System.arraycopy(array, offset, copy, 0, copy.length);
+        return true;
+      }
+      if (buffer != null) {
+        boolean changed = false;
+        for (int i = 0; i < copy.length; i++) {
+          byte b = buffer.get(offset + i);
+          if (b != copy[i]) {
+            copy[i] = b;
+            changed = true;
+          }
+        }
+        return changed;
+      }
+      byte[] data = section.getMemorySegment(address, copy.length);
+      if (Arrays.equals(data, copy)) {
+        return false;
+      }
+      System.arraycopy(data, 0, copy, 0, copy.length);
+      return true;
     }
   }
 
@@ -306,24 +830,48 @@ public class SectionMoteMemory implements MemoryInterface {
     public final SegmentMonitor mm;
     public final long address;
     public final int size;
-    private byte[] oldMem;
-
-    public PolledMemorySegments(SegmentMonitor mm, long address, int size) {
+    public final boolean reads;
+    public final boolean writes;
+    private final MemoryInterface section;
+    private final MemorySnapshot oldMem;
+    private MemorySnapshot[] pages = new MemorySnapshot[0];
+    private BitSet changed = null;
+    private int firstPage;
+    private int lastPage;
+
+    public PolledMemorySegments(SegmentMonitor.EventType flag, SegmentMonitor mm,
+                                MemoryInterface section, long address, int size) {
       this.mm = mm;
       this.address = address;
       this.size = size;
-      
-      oldMem = getMemorySegment(address, size);
+      this.section = section;
+      this.reads = flag == SegmentMonitor.EventType.READ || flag == SegmentMonitor.EventType.READWRITE;
+      this.writes = flag != SegmentMonitor.EventType.READ;
+
+      oldMem = new MemorySnapshot(section, address, size);
+    }
+
+    private boolean isOnDirtyPage() {
+      if (changed != null) {
+        int page = changed.nextSetBit(firstPage);
+        if (page >= 0 && page <= lastPage) {
+          return true;
+        }
+      }
+      for (MemorySnapshot page : pages) {
+        if (page.dirty) {
+          return true;
+        }
+      }
+      return false;
     }
 
     private void notifyIfChanged() {
-      byte[] newMem = getMemorySegment(address, size);
-      if (Arrays.equals(oldMem, newMem)) {
+      if (!oldMem.update()) {
         return;
       }
-      
+
       mm.memoryChanged(SectionMoteMemory.this, SegmentMonitor.EventType.WRITE, address);
-      oldMem = newMem;
     }
   }
 
@@ -29,6 +29,7 @@
  */
 package org.contikios.cooja.mote.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Set;
 
@@ -128,6 +129,343 @@ public class VarMemory extends Memory {
     return getVariable(varName).size;
   }
 
+  /**
+   * Returns a handle to variable with given name.
+   * <p>
+   * The variable is resolved on first access, which throws an
+   * {@link UnknownVariableException} if the variable does not exist.
+   * Later accesses skip the variable and section lookup, and reads and
+   * writes of primitive values do not allocate. Accesses follow the same
+   * rules as accesses by name: writes to readonly memory fail, and reads are
+   * reported to segment monitors.
+   * <p>
+   * A handle stays bound to the memory it was resolved in, even if another
+   * memory is associated with this VarMemory later.
+   *
+   * @param varName Variable name
+   * @return Variable handle
+   */
+  public Handle handle(String varName) {
+    return new Handle(varName);
+  }
+
+  /**
+   * Resolved variable providing fast access to its value.
+   *
+   * @see VarMemory#handle(java.lang.String)
+   */
+  public final class Handle {
+
+    private final String name;
+    private Symbol symbol = null; /* Null until resolved */
+    private long addr;
+    private MemoryLayout layout;
+
+    private MemoryInterface section; /* Memory holding variable */
+    private SectionMoteMemory monitored; /* Memory reporting accesses to its monitors, if any */
+    private byte[] array; /* Writable array backing variable, if any */
+    private ByteBuffer buffer; /* Buffer backing variable, if any */
+    private int index; /* Variable position in array or buffer */
+
+    private Handle(String name) {
+      this.name = name;
+    }
+
+    private void resolve() throws UnknownVariableException {
+      if (symbol != null) {
+        return;
+      }
+      Symbol sym = memIntf.getSymbolMap().get(name);
+      if (sym == null) {
+        throw new UnknownVariableException(name);
+      }
+      addr = sym.addr;
+      layout = memIntf.getLayout();
+
+      section = memIntf;
+      monitored = null;
+      if (memIntf instanceof SectionMoteMemory) {
+        /* Access section directly, and report accesses as the memory does */
+        monitored = (SectionMoteMemory) memIntf;
+        section = monitored.getSectionAt(addr);
+        if (section == null) {
+          throw new MemoryInterface.MoteMemoryException(
+                  "Variable %s at 0x%x is in no section", name, addr);
+        }
+      }
+      array = null;
+      buffer = null;
+      if (section instanceof ArrayMemory && !((ArrayMemory) section).isReadonly()) {
+        array = section.getMemory();
+      } else if (section instanceof ByteBufferMemory) {
+        buffer = ((ByteBufferMemory) section).getBuffer();
+      }
+      index = (int) (addr - section.getStartAddr());
+      symbol = sym;
+    }
+
+    private void read(int length) {
+      if (monitored != null) {
+        monitored.reportRead(addr, length);
+      }
+    }
+
+    private void written(int offset, int length) {
+      if (monitored != null) {
+        monitored.markChanged(addr + offset, length);
+      }
+    }
+
+    /**
+     * @return Variable symbol
+     * @throws UnknownVariableException If variable not found
+     */
+    public Symbol getSymbol() throws UnknownVariableException {
+      resolve();
+      return symbol;
+    }
+
+    /**
+     * @return Variable address
+     * @throws UnknownVariableException If variable not found
+     */
+    public long getAddress() throws UnknownVariableException {
+      resolve();
+      return addr;
+    }
+
+    /**
+     * @return Variable size, -1 if unknown
+     * @throws UnknownVariableException If variable not found
+     */
+    public int getSize() throws UnknownVariableException {
+      resolve();
+      return symbol.size;
+    }
+
+    /**
+     * @return True if variable exists
+     */
+    public boolean exists() {
+      return symbol != null || memIntf.getSymbolMap().containsKey(name);
+    }
+
+    /**
+     * @return 8 bit value of variable
+     */
+    public byte getInt8() {
+      resolve();
+      byte value = section.getInt8(addr);
+      read(1);
+      return value;
+    }
+
+    /**
+     * @return 16 bit value of variable
+     */
+    public short getInt16() {
+      resolve();
+      short value = section.getInt16(addr);
+      read(2);
+      return value;
+    }
+
+    /**
+     * @return 32 bit value of variable
+     */
+    public int getInt32() {
+      resolve();
+      int value = section.getInt32(addr);
+      read(4);
+      return value;
+    }
+
+    /**
+     * @return 64 bit value of variable
+     */
+    public long getInt64() {
+      resolve();
+      long value = section.getInt64(addr);
+      read(8);
+      return value;
+    }
+
+    /**
+     * @return byte value of variable
+     */
+    public byte getByte() {
+      return getInt8();
+    }
+
+    /**
+     * Note: Size of integer depends on memory layout.
+     *
+     * @return integer value of variable
+     */
+    public int getInt() {
+      resolve();
+      return layout.intSize == 2 ? getInt16() : getInt32();
+    }
+
+    /**
+     * Reads bytes from variable.
+     *
+     * @param offset Offset in variable to read from
+     * @param dst Destination array
+     * @param dstOffset Offset in destination array
+     * @param length Number of bytes to read
+     */
+    public void getBytes(int offset, byte[] dst, int dstOffset, int length) {
+      resolve();
+      if (array != null) {
+        System.arraycopy(array, index + offset, dst, dstOffset, length);
+      } else if (buffer != null) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(index + offset);
+        b.get(dst, dstOffset, length);
+      } else {
+        System.arraycopy(section.getMemorySegment(addr + offset, length), 0, dst, dstOffset, length);
+      }
+      if (monitored != null) {
+        monitored.reportRead(addr + offset, length);
+      }
+    }
+
+    /**
+     * Reads bytes from start of variable.
+     *
+     * @param length Number of bytes to read
+     * @return Read bytes
+     */
+    public byte[] getBytes(int length) {
+      byte[] data = new byte[length];
+      getBytes(0, data, 0, length);
+      return data;
+    }
+
+    /**
+     * @param value 8 bit value to write to variable
+     */
+    public void setInt8(byte value) {
+      resolve();
+      section.setInt8(addr, value);
+      written(0, 1);
+    }
+
+    /**
+     * @param value 16 bit value to write to variable
+     */
+    public void setInt16(short value) {
+      resolve();
+      section.setInt16(addr, value);
+      written(0, 2);
+    }
+
+    /**
+     * @param value 32 bit value to write to variable
+     */
+    public void setInt32(int value) {
+      resolve();
+      section.setInt32(addr, value);
+      written(0, 4);
+    }
+
+    /**
+     * @param value 64 bit value to write to variable
+     */
+    public void setInt64(long value) {
+      resolve();
+      section.setInt64(addr, value);
+      written(0, 8);
+    }
+
+    /**
+     * @param value byte value to write to variable
+     */
+    public void setByte(byte value) {
+      setInt8(value);
+    }
+
+    /**
+     * Note: Size of integer depends on memory layout.
+     *
+     * @param value integer value to write to variable
+     */
+    public void setInt(int value) {
+      resolve();
+      if (layout.intSize == 2) {
+        setInt16((short) value);
+      } else {
+        setInt32(value);
+      }
+    }
+
+    /**
+     * Writes bytes to variable.
+     *
+     * @param offset Offset in variable to write to
+     * @param src Source array
+     * @param srcOffset Offset in source array
+     * @param length Number of bytes to write
+     */
+    public void setBytes(int offset, byte[] src, int srcOffset, int length) {
+      resolve();
+      if (array != null) {
+        System.arraycopy(src, srcOffset, array, index + offset, length);
+      } else if (buffer != null) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(index + offset);
+        b.put(src, srcOffset, length);
+      } else {
+        byte[] data = new byte[length];
+        System.arraycopy(src, srcOffset, data, 0, length);
+        section.setMemorySegment(addr + offset, data);
+      }
+      written(offset, length);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to variable, and advances the
+     * buffer position.
+     *
+     * @param offset Offset in variable to write to
+     * @param src Source buffer
+     */
+    public void setBytes(int offset, ByteBuffer src) {
+      resolve();
+      int length = src.remaining();
+      if (src.hasArray()) {
+        setBytes(offset, src.array(), src.arrayOffset() + src.position(), length);
+        src.position(src.position() + length);
+        return;
+      }
+      if (buffer == null) {
+        byte[] data = new byte[length];
+        src.get(data);
+        setBytes(offset, data, 0, length);
+        return;
+      }
+      ByteBuffer b = buffer.duplicate();
+      b.position(index + offset);
+      b.put(src);
+      written(offset, length);
+    }
+
+    /**
+     * Writes bytes to start of variable.
+     *
+     * @param data Bytes to write
+     */
+    public void setBytes(byte[] data) {
+      setBytes(0, data, 0, data.length);
+    }
+
+    @Override
+    public String toString() {
+      return symbol != null ? symbol.toString() : name;
+    }
+  }
+
   /**
    * Read 8 bit integer from location associated with this variable name.
    *
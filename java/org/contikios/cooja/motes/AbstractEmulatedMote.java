@@ -31,6 +31,7 @@ package org.contikios.cooja.motes;
 import org.contikios.cooja.Mote;
 import org.contikios.cooja.plugins.BufferListener;
 import org.contikios.cooja.plugins.BufferListener.BufferAccess;
+import org.contikios.cooja.plugins.FirmwareProfiler;
 import org.contikios.cooja.plugins.TimeLine;
 
 public abstract class AbstractEmulatedMote extends AbstractWakeupMote implements Mote {
@@ -63,4 +64,14 @@ public abstract class AbstractEmulatedMote extends AbstractWakeupMote implements
   public String getStackTrace() {
     return null;
   }
+
+  /**
+   * @return Names of the functions on the call stack, from the outermost
+   * caller to the function currently executing. May return null.
+   *
+   * @see FirmwareProfiler
+   */
+  public String[] getCallStackFunctions() {
+    return null;
+  }
 }
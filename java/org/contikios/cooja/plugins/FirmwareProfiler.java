@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.plugins;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.Box;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.log4j.Logger;
+import org.jdom.Element;
+
+import org.contikios.cooja.ClassDescription;
+import org.contikios.cooja.Cooja;
+import org.contikios.cooja.Mote;
+import org.contikios.cooja.MoteTimeEvent;
+import org.contikios.cooja.PluginType;
+import org.contikios.cooja.SimEventCentral.MoteCountListener;
+import org.contikios.cooja.Simulation;
+import org.contikios.cooja.VisPlugin;
+import org.contikios.cooja.motes.AbstractEmulatedMote;
+
+/**
+ * Statistical profiler for emulated motes.
+ *
+ * Samples the call stack of every emulated mote at a fixed interval of
+ * simulated CPU cycles, and aggregates the samples of all motes of a type.
+ * The samples can be saved in the folded stack format read by flame graph
+ * tools, one line per call stack: "type;caller;callee samples".
+ *
+ * A mote is sampled in its state at the sample time, i.e. after its last
+ * execution. Intervals shorter than the execution quanta of a mote emulator
+ * therefore sample the same state repeatedly.
+ *
+ * This plugin can be run without visualization, i.e. from a Contiki test.
+ *
+ * @see AbstractEmulatedMote#getCallStackFunctions()
+ */
+@ClassDescription("Firmware profiler")
+@PluginType(PluginType.SIM_PLUGIN)
+public class FirmwareProfiler extends VisPlugin {
+  private static final long serialVersionUID = -8069986115923044191L;
+  private static Logger logger = Logger.getLogger(FirmwareProfiler.class);
+
+  private static final long DEFAULT_INTERVAL_CYCLES = 100000;
+  private static final int UPDATE_INTERVAL = 1000; /* ms */
+
+  private static final int COLUMN_TYPE = 0;
+  private static final int COLUMN_FUNCTION = 1;
+  private static final int COLUMN_SAMPLES = 2;
+  private static final int COLUMN_PERCENT = 3;
+
+  private final Simulation simulation;
+  private MoteCountListener moteCountListener;
+  private final ArrayList<Sampler> samplers = new ArrayList<Sampler>();
+
+  private long intervalCycles = DEFAULT_INTERVAL_CYCLES;
+  private File outputFile = null;
+
+  /* Folded call stack -> number of samples */
+  private final HashMap<String, long[]> samples = new HashMap<String, long[]>();
+  private long totalSamples = 0;
+
+  /* Samples per innermost function, shown in table */
+  private ArrayList<Object[]> functionRows = new ArrayList<Object[]>();
+
+  private JTable table;
+  private JTextField intervalField;
+  private Timer updateTimer;
+
+  public FirmwareProfiler(final Simulation simulation, final Cooja gui) {
+    super("Firmware profiler", gui, false);
+    this.simulation = simulation;
+
+    /* Automatically add/delete motes */
+    simulation.getEventCentral().addMoteCountListener(moteCountListener = new MoteCountListener() {
+      public void moteWasAdded(Mote mote) {
+        addMote(mote);
+      }
+      public void moteWasRemoved(Mote mote) {
+        removeMote(mote);
+      }
+    });
+    for (Mote m: simulation.getMotes()) {
+      addMote(m);
+    }
+
+    if (!Cooja.isVisualized()) {
+      return;
+    }
+
+    AbstractTableModel model = new AbstractTableModel() {
+      private static final long serialVersionUID = 989484780932345742L;
+      public int getRowCount() {
+        return functionRows.size();
+      }
+      public int getColumnCount() {
+        return 4;
+      }
+      public String getColumnName(int col) {
+        if (col == COLUMN_TYPE) {
+          return "Mote type";
+        }
+        if (col == COLUMN_FUNCTION) {
+          return "Function";
+        }
+        if (col == COLUMN_SAMPLES) {
+          return "Samples";
+        }
+        if (col == COLUMN_PERCENT) {
+          return "Samples (%)";
+        }
+        return null;
+      }
+      public Object getValueAt(int rowIndex, int col) {
+        if (rowIndex < 0 || rowIndex >= functionRows.size()) {
+          return null;
+        }
+        Object[] row = functionRows.get(rowIndex);
+        if (col == COLUMN_PERCENT) {
+          long total = (Long) row[3];
+          return String.format("%2.2f%%", total == 0 ? 0.0 : 100.0*(Long)row[COLUMN_SAMPLES]/total);
+        }
+        return row[col];
+      }
+    };
+    table = new JTable(model);
+
+    intervalField = new JTextField("" + intervalCycles, 8);
+    intervalField.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        try {
+          setInterval(Long.parseLong(intervalField.getText().trim()));
+        } catch (NumberFormatException ex) {
+          intervalField.setText("" + intervalCycles);
+        }
+      }
+    });
+
+    Box control = Box.createHorizontalBox();
+    control.add(new JLabel("Interval (cycles): "));
+    control.add(intervalField);
+    control.add(Box.createHorizontalGlue());
+    control.add(new JButton(saveAction));
+    control.add(new JButton(resetAction));
+
+    this.getContentPane().add(BorderLayout.CENTER, new JScrollPane(table));
+    this.getContentPane().add(BorderLayout.SOUTH, control);
+    setSize(500, 400);
+
+    updateTimer = new Timer(UPDATE_INTERVAL, new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        functionRows = getFunctionRows();
+        ((AbstractTableModel)table.getModel()).fireTableDataChanged();
+      }
+    });
+    updateTimer.start();
+  }
+
+  /**
+   * Samples one mote at a fixed interval of its CPU cycles.
+   */
+  private class Sampler extends MoteTimeEvent {
+    private final AbstractEmulatedMote mote;
+    private final long period;
+
+    public Sampler(AbstractEmulatedMote mote, long period) {
+      super(mote, 0);
+      this.mote = mote;
+      this.period = period;
+    }
+
+    public void execute(long t) {
+      sample(mote);
+      simulation.scheduleEvent(this, t + period);
+    }
+  }
+
+  private void addMote(Mote mote) {
+    if (!(mote instanceof AbstractEmulatedMote)) {
+      return;
+    }
+    AbstractEmulatedMote emulatedMote = (AbstractEmulatedMote) mote;
+    int frequency = emulatedMote.getCPUFrequency();
+    if (frequency <= 0) {
+      logger.warn("Not profiling " + mote + ": unknown CPU frequency");
+      return;
+    }
+    long period = (long) Math.max(1, 1.0*intervalCycles*1000*Simulation.MILLISECOND/frequency);
+
+    final Sampler sampler = new Sampler(emulatedMote, period);
+    synchronized (samplers) {
+      samplers.add(sampler);
+    }
+    simulation.invokeSimulationThread(new Runnable() {
+      public void run() {
+        if (!sampler.isScheduled()) {
+          simulation.scheduleEvent(sampler, simulation.getSimulationTime() + sampler.period);
+        }
+      }
+    });
+  }
+
+  private void removeMote(Mote mote) {
+    synchronized (samplers) {
+      for (Sampler s: samplers.toArray(new Sampler[0])) {
+        if (s.getMote() == mote) {
+          s.remove();
+          samplers.remove(s);
+        }
+      }
+    }
+  }
+
+  private void sample(AbstractEmulatedMote mote) {
+    String[] stack = mote.getCallStackFunctions();
+    if (stack == null || stack.length == 0) {
+      return;
+    }
+
+    StringBuilder sb = new StringBuilder(mote.getType().getIdentifier());
+    for (String function: stack) {
+      sb.append(';').append(function.replace(';', '_').replace(' ', '_'));
+    }
+    String key = sb.toString();
+
+    synchronized (samples) {
+      long[] count = samples.get(key);
+      if (count == null) {
+        count = new long[1];
+        samples.put(key, count);
+      }
+      count[0]++;
+      totalSamples++;
+    }
+  }
+
+  /**
+   * Changes the sampling interval, and restarts sampling of all motes.
+   *
+   * @param cycles Interval in CPU cycles
+   */
+  public void setInterval(long cycles) {
+    if (cycles <= 0) {
+      throw new IllegalArgumentException("Bad sampling interval: " + cycles);
+    }
+    intervalCycles = cycles;
+    for (Mote m: simulation.getMotes()) {
+      removeMote(m);
+      addMote(m);
+    }
+    if (intervalField != null) {
+      intervalField.setText("" + intervalCycles);
+    }
+  }
+
+  public long getInterval() {
+    return intervalCycles;
+  }
+
+  /**
+   * Discards all samples.
+   */
+  public void reset() {
+    synchronized (samples) {
+      samples.clear();
+      totalSamples = 0;
+    }
+  }
+
+  public long getTotalSamples() {
+    synchronized (samples) {
+      return totalSamples;
+    }
+  }
+
+  /**
+   * @return Samples in folded stack format, one call stack per line
+   */
+  public String getFoldedStacks() {
+    ArrayList<String> lines = new ArrayList<String>();
+    synchronized (samples) {
+      for (Map.Entry<String, long[]> entry: samples.entrySet()) {
+        lines.add(entry.getKey() + " " + entry.getValue()[0]);
+      }
+    }
+    Collections.sort(lines);
+
+    StringBuilder sb = new StringBuilder();
+    for (String line: lines) {
+      sb.append(line).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes all samples in folded stack format.
+   *
+   * @param file Output file
+   * @throws IOException On write errors
+   */
+  public void writeFoldedStacks(File file) throws IOException {
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+    try {
+      writer.write(getFoldedStacks());
+    } finally {
+      writer.close();
+    }
+  }
+
+  /* Samples per mote type and innermost function, most sampled first */
+  private ArrayList<Object[]> getFunctionRows() {
+    HashMap<String, long[]> functions = new HashMap<String, long[]>();
+    long total;
+    synchronized (samples) {
+      total = totalSamples;
+      for (Map.Entry<String, long[]> entry: samples.entrySet()) {
+        String key = entry.getKey();
+        String leaf = key.substring(0, key.indexOf(';')) + ";" + key.substring(key.lastIndexOf(';') + 1);
+        long[] count = functions.get(leaf);
+        if (count == null) {
+          count = new long[1];
+          functions.put(leaf, count);
+        }
+        count[0] += entry.getValue()[0];
+      }
+    }
+
+    ArrayList<Object[]> rows = new ArrayList<Object[]>();
+    for (Map.Entry<String, long[]> entry: functions.entrySet()) {
+      String key = entry.getKey();
+      int split = key.indexOf(';');
+      rows.add(new Object[] {
+          key.substring(0, split), key.substring(split + 1), entry.getValue()[0], total
+      });
+    }
+    Collections.sort(rows, new Comparator<Object[]>() {
+      public int compare(Object[] o1, Object[] o2) {
+        return ((Long) o2[COLUMN_SAMPLES]).compareTo((Long) o1[COLUMN_SAMPLES]);
+      }
+    });
+    return rows;
+  }
+
+  private Action saveAction = new AbstractAction("Save folded stacks") {
+    private static final long serialVersionUID = 1305855675534132749L;
+    public void actionPerformed(ActionEvent e) {
+      JFileChooser fc = new JFileChooser();
+      fc.setSelectedFile(outputFile != null ? outputFile : new File("profile.folded"));
+      if (fc.showSaveDialog(Cooja.getTopParentContainer()) != JFileChooser.APPROVE_OPTION) {
+        return;
+      }
+      try {
+        writeFoldedStacks(fc.getSelectedFile());
+      } catch (IOException ex) {
+        JOptionPane.showMessageDialog(FirmwareProfiler.this, ex.getMessage(), "IOException", JOptionPane.ERROR_MESSAGE);
+      }
+    }
+  };
+
+  private Action resetAction = new AbstractAction("Reset") {
+    private static final long serialVersionUID = -4474665951640575468L;
+    public void actionPerformed(ActionEvent e) {
+      reset();
+    }
+  };
+
+  public void closePlugin() {
+    if (updateTimer != null) {
+      updateTimer.stop();
+    }
+
+    simulation.getEventCentral().removeMoteCountListener(moteCountListener);
+    for (Mote m: simulation.getMotes()) {
+      removeMote(m);
+    }
+
+    if (outputFile != null) {
+      try {
+        writeFoldedStacks(outputFile);
+        logger.info("Wrote " + getTotalSamples() + " profiler samples to " + outputFile);
+      } catch (IOException e) {
+        logger.warn("Could not write profiler samples: " + e.getMessage());
+      }
+    }
+  }
+
+  public Collection<Element> getConfigXML() {
+    ArrayList<Element> config = new ArrayList<Element>();
+    Element element;
+
+    element = new Element("interval");
+    element.setText("" + intervalCycles);
+    config.add(element);
+
+    if (outputFile != null) {
+      element = new Element("output");
+      File file = simulation.getCooja().createPortablePath(outputFile);
+      element.setText(file.getPath().replaceAll("\\\\", "/"));
+      config.add(element);
+    }
+
+    return config;
+  }
+
+  public boolean setConfigXML(Collection<Element> configXML, boolean visAvailable) {
+    for (Element element : configXML) {
+      if (element.getName().equals("interval")) {
+        setInterval(Long.parseLong(element.getText()));
+      } else if (element.getName().equals("output")) {
+        outputFile = simulation.getCooja().restorePortablePath(new File(element.getText()));
+      }
+    }
+    return true;
+  }
+
+}
@@ -41,6 +41,8 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.File;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -54,6 +56,7 @@ import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFormattedTextField;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -76,7 +79,10 @@ import org.contikios.cooja.MotePlugin;
 import org.contikios.cooja.PluginType;
 import org.contikios.cooja.Simulation;
 import org.contikios.cooja.VisPlugin;
+import org.contikios.cooja.contikimote.ContikiMote;
+import org.contikios.cooja.contikimote.MemoryJournal;
 import org.contikios.cooja.mote.memory.MemoryInterface;
+import org.contikios.cooja.mote.memory.SectionMoteMemory;
 import org.contikios.cooja.mote.memory.UnknownVariableException;
 import org.contikios.cooja.mote.memory.VarMemory;
 import org.jdesktop.swingx.autocomplete.AutoCompleteDecorator;
@@ -112,6 +118,7 @@ public class VariableWatcher extends VisPlugin implements MotePlugin, HasQuickHe
   private JButton readButton;
   private AbstractButton monitorButton;
   private JButton writeButton;
+  private JToggleButton journalButton;
   private JLabel debuglbl;
   private VarMemory moteMemory;
 
@@ -131,7 +138,9 @@ public class VariableWatcher extends VisPlugin implements MotePlugin, HasQuickHe
             + "<p>Use the dropdown list to select variable to read. "
             + "If no size information is available size can be set manually."
             + "<p>To freely select the monitored region, enable address checkbox "
-            + "and set both address and size.";
+            + "and set both address and size."
+            + "<p>For Contiki motes, memory can be recorded to a journal file. "
+            + "Values at past simulated times are then read from the journal.";
   }
 
   /** 
@@ -467,6 +476,7 @@ public class VariableWatcher extends VisPlugin implements MotePlugin, HasQuickHe
                   (long) varAddressField.getValue(),
                   Integer.decode(varSizeField.getText()));
           refreshValues();
+          debuglbl.setText("");
         } catch (MemoryInterface.MoteMemoryException ex) {
           JOptionPane.showMessageDialog(varNameCombo, ex.getMessage(), "MoteMemoryException", JOptionPane.ERROR_MESSAGE);
         }
@@ -571,10 +581,122 @@ public class VariableWatcher extends VisPlugin implements MotePlugin, HasQuickHe
     smallPane.add(BorderLayout.EAST, writeButton);
     mainPane.add(smallPane);
 
+    /* Memory journal, Contiki motes only */
+    if (mote instanceof ContikiMote) {
+      final ContikiMote contikiMote = (ContikiMote) mote;
+      smallPane = new JPanel(new BorderLayout());
+
+      journalButton = new JToggleButton("Record journal");
+      journalButton.setSelected(contikiMote.getMemoryJournal() != null);
+      journalButton.addActionListener(new ActionListener() {
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          if (!journalButton.isSelected()) {
+            simulation.invokeSimulationThread(new Runnable() {
+              @Override
+              public void run() {
+                contikiMote.setMemoryJournal(null);
+              }
+            });
+            return;
+          }
+
+          JFileChooser fc = new JFileChooser();
+          fc.setSelectedFile(new File("mote" + mote.getID() + ".journal"));
+          if (fc.showSaveDialog(Cooja.getTopParentContainer()) != JFileChooser.APPROVE_OPTION) {
+            journalButton.setSelected(false);
+            return;
+          }
+          final MemoryJournal journal;
+          try {
+            journal = new MemoryJournal(fc.getSelectedFile());
+          } catch (IOException ex) {
+            JOptionPane.showMessageDialog(journalButton, ex.getMessage(), "IOException", JOptionPane.ERROR_MESSAGE);
+            journalButton.setSelected(false);
+            return;
+          }
+          simulation.invokeSimulationThread(new Runnable() {
+            @Override
+            public void run() {
+              contikiMote.setMemoryJournal(journal);
+            }
+          });
+        }
+      });
+      smallPane.add(BorderLayout.WEST, journalButton);
+
+      JButton historyButton = new JButton("Read at time...");
+      historyButton.addActionListener(new ActionListener() {
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+          readFromJournal(contikiMote);
+        }
+      });
+      smallPane.add(BorderLayout.EAST, historyButton);
+
+      mainPane.add(Box.createRigidArea(new Dimension(0,5)));
+      mainPane.add(smallPane);
+    }
+
     add(BorderLayout.NORTH, mainPane);
     pack();
   }
 
+  /**
+   * Reads the selected memory region at a past simulated time
+   * from the memory journal of given mote.
+   *
+   * @param contikiMote Mote recording a memory journal
+   */
+  private void readFromJournal(ContikiMote contikiMote) {
+    MemoryJournal journal = contikiMote.getMemoryJournal();
+    if (journal == null) {
+      JOptionPane.showMessageDialog(this, "No memory journal is recorded for this mote", "No journal", JOptionPane.INFORMATION_MESSAGE);
+      return;
+    }
+    if (varAddressField.getValue() == null || varSizeField.getText().equals("N/A")) {
+      return;
+    }
+    String input = JOptionPane.showInputDialog(this, "Simulated time (ms)", "Read at time", JOptionPane.QUESTION_MESSAGE);
+    if (input == null) {
+      return;
+    }
+
+    long time;
+    try {
+      time = (long) (Double.parseDouble(input.trim()) * Simulation.MILLISECOND);
+    } catch (NumberFormatException ex) {
+      JOptionPane.showMessageDialog(this, "Invalid time: " + input, "NumberFormatException", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+
+    MemoryJournal.Reader reader = null;
+    try {
+      journal.flush();
+      reader = new MemoryJournal.Reader(journal.getFile());
+      SectionMoteMemory mem = reader.getMemoryAt(time, (SectionMoteMemory) mote.getMemory());
+      if (mem == null) {
+        JOptionPane.showMessageDialog(this, "No journal record at or before " + input + " ms", "No record", JOptionPane.INFORMATION_MESSAGE);
+        return;
+      }
+      bufferedBytes = new VarMemory(mem).getByteArray(
+              (long) varAddressField.getValue(),
+              Integer.decode(varSizeField.getText()));
+      refreshValues();
+      debuglbl.setText("Value at " + input.trim() + " ms");
+    } catch (IOException ex) {
+      JOptionPane.showMessageDialog(this, ex.getMessage(), "IOException", JOptionPane.ERROR_MESSAGE);
+    } catch (MemoryInterface.MoteMemoryException ex) {
+      JOptionPane.showMessageDialog(this, ex.getMessage(), "MoteMemoryException", JOptionPane.ERROR_MESSAGE);
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
   private void updateBySelectedVarname() {
     try {
       String currentItem = (String) varNameCombo.getSelectedItem();
@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Random;
 import java.util.WeakHashMap;
 
 import org.apache.log4j.Logger;
@@ -428,6 +429,26 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 		}
 	};
 	
+	private final HashMap<Radio, Random> radioRandoms = new HashMap<Radio, Random>();
+
+	/**
+	 * Returns the random stream of this radio medium for a radio.
+	 * Random decisions about a radio, such as whether it receives a
+	 * transmission, are drawn from its own stream. Adding or removing other
+	 * radios hence does not change them.
+	 *
+	 * @param radio Radio
+	 * @return Random stream
+	 */
+	protected Random getRandom(Radio radio) {
+		Random random = radioRandoms.get(radio);
+		if (random == null) {
+			random = simulation.getRandomStreams().getMoteStream(radio.getMote(), getClass().getName());
+			radioRandoms.put(radio, random);
+		}
+		return random;
+	}
+	
 	public void registerMote(Mote mote, Simulation sim) {
 		registerRadioInterface(mote.getInterfaces().getRadio(), sim);
 	}
@@ -458,6 +479,7 @@ public abstract class AbstractRadioMedium extends RadioMedium {
 		
 		radio.deleteObserver(radioEventsObserver);
 		registeredRadios.remove(radio);
+		radioRandoms.remove(radio);
 		
 		removeFromActiveConnections(radio);
 		
@@ -35,7 +35,6 @@ import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Random;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -64,7 +63,6 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   private static Logger logger = Logger.getLogger(DirectedGraphMedium.class);
 
   private Simulation simulation;
-  private Random random;
 
   private ArrayList<Edge> edges = new ArrayList<Edge>();
   private boolean edgesDirty = true;
@@ -80,7 +78,6 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   public DirectedGraphMedium(Simulation simulation) {
     super(simulation);
     this.simulation = simulation;
-    random = simulation.getRandomGenerator();
 
     requestEdgeAnalysis();
   }
@@ -318,7 +315,7 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
          continue;
       }
             
-      if (dest.ratio < 1.0 && random.nextDouble() > dest.ratio) {
+      if (dest.ratio < 1.0 && getRandom(dest.radio).nextDouble() > dest.ratio) {
     	/* Fail: Reception ratio */
         /*logger.info(source + ": Fail, randomly");*/
         newConn.addInterfered(dest.radio);
@@ -350,8 +347,6 @@ public class DirectedGraphMedium extends AbstractRadioMedium {
   public boolean setConfigXML(Collection<Element> configXML, boolean visAvailable) {
     super.setConfigXML(configXML, visAvailable);
 
-    random = simulation.getRandomGenerator();
-
     /* Wait until simulation has been loaded */
     delayedConfiguration = configXML;
     return true;
@@ -162,7 +162,7 @@ public class LogisticLoss extends AbstractRadioMedium {
 
     public LogisticLoss(Simulation simulation) {
         super(simulation);
-        random = simulation.getRandomGenerator();
+        random = simulation.getRandomStreams().getStream(LogisticLoss.class.getName() + "/time variation");
         sim = simulation;
         dgrm = new DirectedGraphMedium() {
                 protected void analyzeEdges() {
@@ -240,7 +240,7 @@ public class LogisticLoss extends AbstractRadioMedium {
         RadioConnection newConnection = new RadioConnection(sender);
 
         /* Fail radio transmission randomly - no radios will hear this transmission */
-        if (getTxSuccessProbability(sender) < 1.0 && random.nextDouble() > getTxSuccessProbability(sender)) {
+        if (getTxSuccessProbability(sender) < 1.0 && getRandom(sender).nextDouble() > getTxSuccessProbability(sender)) {
             return newConnection;
         }
 
@@ -283,7 +283,7 @@ public class LogisticLoss extends AbstractRadioMedium {
                 } else if (recv.isTransmitting()) {
                     newConnection.addInterfered(recv);
                 } else {
-                    boolean receiveNewOk = random.nextDouble() < getRxSuccessProbability(sender, recv);
+                    boolean receiveNewOk = getRandom(recv).nextDouble() < getRxSuccessProbability(sender, recv);
 
                     if (recv.isReceiving()) {
                         /*
@@ -360,8 +360,8 @@ public class LogisticLoss extends AbstractRadioMedium {
     }
 
     /* Additive White Gaussian Noise, sampled from the distribution N(0.0, AWGN_SIGMA) */
-    private double getAWGN() {
-        return random.nextGaussian() * AWGN_SIGMA;
+    private double getAWGN(Radio dst) {
+        return getRandom(dst).nextGaussian() * AWGN_SIGMA;
     }
 
     private double getRSSI(Radio source, Radio dst) {
@@ -385,7 +385,7 @@ public class LogisticLoss extends AbstractRadioMedium {
             }
         }
 
-        return DEFAULT_TX_POWER_DBM - path_loss_dbm + getAWGN();
+        return DEFAULT_TX_POWER_DBM - path_loss_dbm + getAWGN(dst);
     }
 
     private void updateTimeVariationComponent() {
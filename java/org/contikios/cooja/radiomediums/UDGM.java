@@ -34,7 +34,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.Random;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -89,11 +88,8 @@ public class UDGM extends AbstractRadioMedium {
 
   private DirectedGraphMedium dgrm; /* Used only for efficient destination lookup */
 
-  private Random random = null;
-
   public UDGM(Simulation simulation) {
     super(simulation);
-    random = simulation.getRandomGenerator();
     dgrm = new DirectedGraphMedium() {
       protected void analyzeEdges() {
         /* Create edges according to distances.
@@ -167,7 +163,7 @@ public class UDGM extends AbstractRadioMedium {
     RadioConnection newConnection = new RadioConnection(sender);
 
     /* Fail radio transmission randomly - no radios will hear this transmission */
-    if (getTxSuccessProbability(sender) < 1.0 && random.nextDouble() > getTxSuccessProbability(sender)) {
+    if (getTxSuccessProbability(sender) < 1.0 && getRandom(sender).nextDouble() > getTxSuccessProbability(sender)) {
       return newConnection;
     }
 
@@ -230,7 +226,7 @@ public class UDGM extends AbstractRadioMedium {
         } else if (recv.isTransmitting()) {
           newConnection.addInterfered(recv);
         } else if (recv.isReceiving() ||
-            (random.nextDouble() > getRxSuccessProbability(sender, recv))) {
+            (getRandom(recv).nextDouble() > getRxSuccessProbability(sender, recv))) {
           /* Was receiving, or reception failed: start interfering */
           newConnection.addInterfered(recv);
           recv.interfereAnyReception();
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2026, Swedish Institute of Computer Science.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the Institute nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE INSTITUTE AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE INSTITUTE OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ *
+ */
+
+package org.contikios.cooja.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity byte ring buffer for passing data from one or more producer
+ * threads to a single consumer thread.
+ * <p>
+ * Writes never lock and never wait for the consumer: a producer reserves
+ * space by advancing the claim position with compare-and-set, copies its
+ * data, and publishes it by advancing the write position. Concurrent
+ * producers publish in the order they claimed, so a producer may have to
+ * yield while an earlier one finishes its copy. Data is copied in bulk,
+ * and no objects are allocated after construction.
+ */
+public class ByteRingBuffer {
+
+  /**
+   * Receives data drained from the ring buffer.
+   * A drain may call the sink at most twice, once per contiguous segment.
+   */
+  public interface Sink {
+    /**
+     * @param data Ring buffer storage, must not be kept by the sink
+     * @param offset Segment offset
+     * @param length Segment length
+     */
+    public void write(byte[] data, int offset, int length);
+  }
+
+  private final byte[] buffer;
+  private final int mask;
+
+  /* Next position to read, only written by consumer */
+  private volatile long readPos = 0;
+
+  /* Next position to reserve, advanced by producers */
+  private final AtomicLong claimPos = new AtomicLong(0);
+
+  /* End of published data, advanced by producers in claim order */
+  private volatile long writePos = 0;
+
+  /**
+   * @param capacity Minimum capacity in bytes, rounded up to a power of two
+   */
+  public ByteRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 1));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    buffer = new byte[size];
+    mask = size - 1;
+  }
+
+  /**
+   * @return Capacity in bytes
+   */
+  public int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * @return Number of buffered bytes
+   */
+  public int size() {
+    return (int) (writePos - readPos);
+  }
+
+  /**
+   * @return True if no bytes are buffered
+   */
+  public boolean isEmpty() {
+    return writePos == readPos;
+  }
+
+  /**
+   * Writes one byte.
+   *
+   * @param b Byte
+   * @return True if written, false if the buffer is full
+   */
+  public boolean write(byte b) {
+    long w;
+    do {
+      w = claimPos.get();
+      if (w - readPos >= buffer.length) {
+        return false;
+      }
+    } while (!claimPos.compareAndSet(w, w + 1));
+    buffer[(int) w & mask] = b;
+    publish(w, w + 1);
+    return true;
+  }
+
+  /**
+   * Writes as many bytes as fit.
+   *
+   * @param src Source array
+   * @param offset Source offset
+   * @param length Number of bytes
+   * @return Number of bytes written
+   */
+  public int write(byte[] src, int offset, int length) {
+    long w;
+    int n;
+    do {
+      w = claimPos.get();
+      n = Math.min(length, buffer.length - (int) (w - readPos));
+      if (n <= 0) {
+        return 0;
+      }
+    } while (!claimPos.compareAndSet(w, w + n));
+    int pos = (int) w & mask;
+    int first = Math.min(n, buffer.length - pos);
+    System.arraycopy(src, offset, buffer, pos, first);
+    System.arraycopy(src, offset + first, buffer, 0, n - first);
+    publish(w, w + n);
+    return n;
+  }
+
+  /**
+   * Writes as many remaining bytes of a buffer as fit, and advances its
+   * position accordingly.
+   *
+   * @param src Source buffer
+   * @return Number of bytes written
+   */
+  public int write(ByteBuffer src) {
+    long w;
+    int n;
+    do {
+      w = claimPos.get();
+      n = Math.min(src.remaining(), buffer.length - (int) (w - readPos));
+      if (n <= 0) {
+        return 0;
+      }
+    } while (!claimPos.compareAndSet(w, w + n));
+    int pos = (int) w & mask;
+    int first = Math.min(n, buffer.length - pos);
+    src.get(buffer, pos, first);
+    src.get(buffer, 0, n - first);
+    publish(w, w + n);
+    return n;
+  }
+
+  /**
+   * Makes claimed and copied bytes visible to the consumer, after all
+   * earlier claims have been published.
+   */
+  private void publish(long start, long end) {
+    while (writePos != start) {
+      Thread.yield();
+    }
+    writePos = end;
+  }
+
+  /**
+   * Passes buffered bytes to the given sink, and removes them from the
+   * buffer. Must only be called from the consumer thread.
+   *
+   * @param sink Sink
+   * @param maxLength Maximum number of bytes
+   * @return Number of bytes drained
+   */
+  public int drainTo(Sink sink, int maxLength) {
+    long r = readPos;
+    int n = Math.min(maxLength, (int) (writePos - r));
+    if (n <= 0) {
+      return 0;
+    }
+    int pos = (int) r & mask;
+    int first = Math.min(n, buffer.length - pos);
+    sink.write(buffer, pos, first);
+    if (n > first) {
+      sink.write(buffer, 0, n - first);
+    }
+    readPos = r + n;
+    return n;
+  }
+
+  /**
+   * Removes all buffered bytes. Must only be called from the consumer thread.
+   */
+  public void clear() {
+    readPos = writePos;
+  }
+}